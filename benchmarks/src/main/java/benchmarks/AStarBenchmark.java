@@ -0,0 +1,71 @@
+package benchmarks;
+
+import agents.robinBaumgarten.AStarTree;
+import engine.core.MarioForwardModel;
+import engine.core.MarioGame;
+import engine.core.MarioWorld;
+import engine.helper.GameStatus;
+import engine.helper.MarioActions;
+import engine.helper.MarioTimer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plays the levels with robinBaumgarten's A* agent under the real time budget of a tick. The score is the
+ * number of ticks played per second, the expansions counter is the number of search nodes simulated.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AStarBenchmark {
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Expansions {
+        public long expansions;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            this.expansions = 0;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class AgentState {
+        public MarioWorld world;
+        public AStarTree tree;
+
+        @Setup(Level.Iteration)
+        public void reset(GameState state) {
+            this.restart(state.levelText);
+        }
+
+        /**
+         * The agent starts from the beginning of the level, the prototype world may already be lost for it.
+         *
+         * @param levelText the level contents
+         */
+        public void restart(String levelText) {
+            this.world = new MarioWorld(null);
+            this.world.visuals = false;
+            this.world.initializeLevel(levelText, 1000 * 200);
+            this.world.update(new boolean[MarioActions.numberOfActions()]);
+            this.tree = new AStarTree();
+        }
+    }
+
+    @Benchmark
+    public MarioWorld aStarTick(GameState state, AgentState agent, Expansions counters) {
+        if (agent.world.gameStatus != GameStatus.RUNNING) {
+            agent.restart(state.levelText);
+        }
+        boolean[] actions = agent.tree.optimise(new MarioForwardModel(agent.world.clone()),
+                new MarioTimer(MarioGame.maxTime));
+        counters.expansions += agent.tree.getExpansions();
+        agent.world.update(actions);
+        return agent.world;
+    }
+}
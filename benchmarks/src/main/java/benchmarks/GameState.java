@@ -0,0 +1,99 @@
+package benchmarks;
+
+import engine.core.MarioForwardModel;
+import engine.core.MarioForwardModelPool;
+import engine.core.MarioSnapshot;
+import engine.core.MarioWorld;
+import engine.helper.GameStatus;
+import engine.helper.MarioActions;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * A running game on one of the representative levels. The prototype world has already played a few seconds
+ * so enemies are spawned and the camera moved, every benchmark starts from a copy of it.
+ */
+@State(Scope.Thread)
+public class GameState {
+    /**
+     * number of ticks played before the prototype world is taken
+     */
+    public static final int WARMUP_TICKS = 60;
+
+    @Param({"original/lvl-1.txt", "original/lvl-3.txt", "notch/lvl-1.txt", "notch/lvl-100.txt"})
+    public String level;
+
+    public String levelText;
+    public MarioWorld prototype;
+    public MarioWorld world;
+    public MarioForwardModel model;
+    public MarioSnapshot snapshot;
+    public MarioForwardModelPool pool = new MarioForwardModelPool();
+
+    private int tick;
+
+    @Setup(Level.Trial)
+    public void loadLevel() throws IOException {
+        this.levelText = readLevel(this.level);
+        this.prototype = new MarioWorld(null);
+        this.prototype.visuals = false;
+        this.prototype.initializeLevel(this.levelText, 1000 * 200);
+        this.prototype.update(new boolean[MarioActions.numberOfActions()]);
+        for (int i = 0; i < WARMUP_TICKS && this.prototype.gameStatus == GameStatus.RUNNING; i++) {
+            this.prototype.update(this.nextActions());
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        this.tick = 0;
+        this.world = this.prototype.clone();
+        this.model = new MarioForwardModel(this.prototype.clone());
+        this.snapshot = this.model.snapshot();
+    }
+
+    /**
+     * Runs right and jumps for 8 ticks out of every 24, so mario keeps moving through the level.
+     *
+     * @return the buttons pressed for the next tick
+     */
+    public boolean[] nextActions() {
+        boolean[] actions = new boolean[MarioActions.numberOfActions()];
+        actions[MarioActions.RIGHT.getValue()] = true;
+        actions[MarioActions.SPEED.getValue()] = true;
+        actions[MarioActions.JUMP.getValue()] = this.tick % 24 < 8;
+        this.tick += 1;
+        return actions;
+    }
+
+    /**
+     * Restart from the prototype once the game is over, otherwise update would return straight away.
+     */
+    public void restartIfFinished() {
+        if (this.world.gameStatus != GameStatus.RUNNING) {
+            this.world = this.prototype.clone();
+        }
+        if (this.model.getGameStatus() != GameStatus.RUNNING) {
+            this.model = new MarioForwardModel(this.prototype.clone());
+        }
+    }
+
+    /**
+     * Levels are looked up relative to the working directory, which is either the repository root or the
+     * benchmarks module.
+     *
+     * @param level path of the level inside the levels folder
+     * @return the level contents
+     */
+    static String readLevel(String level) throws IOException {
+        Path path = Paths.get("levels", level);
+        if (!Files.exists(path)) {
+            path = Paths.get("..", "levels", level);
+        }
+        return new String(Files.readAllBytes(path));
+    }
+}
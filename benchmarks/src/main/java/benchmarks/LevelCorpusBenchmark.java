@@ -0,0 +1,72 @@
+package benchmarks;
+
+import engine.core.CompiledLevel;
+import engine.helper.LevelCorpus;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to get every level of the levels folder ready to be played, once from the text files and once from a
+ * packed corpus file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class LevelCorpusBenchmark {
+    private Path levelsFolder;
+    private Path corpusFile;
+
+    @Setup(Level.Trial)
+    public void packCorpus() throws IOException {
+        this.levelsFolder = Paths.get("levels");
+        if (!Files.exists(this.levelsFolder)) {
+            this.levelsFolder = Paths.get("..", "levels");
+        }
+        this.corpusFile = Files.createTempFile("levels", ".corpus");
+        LevelCorpus.pack(this.levelsFolder, this.corpusFile);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteCorpus() throws IOException {
+        Files.deleteIfExists(this.corpusFile);
+    }
+
+    @Benchmark
+    public int loadTextFiles() throws IOException {
+        int tiles = 0;
+        try (DirectoryStream<Path> folders = Files.newDirectoryStream(this.levelsFolder)) {
+            for (Path folder : folders) {
+                if (!Files.isDirectory(folder)) {
+                    continue;
+                }
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(folder, "lvl-*.txt")) {
+                    for (Path file : files) {
+                        tiles += CompiledLevel.compile(new String(Files.readAllBytes(file))).tileWidth;
+                    }
+                }
+            }
+        }
+        return tiles;
+    }
+
+    @Benchmark
+    public int loadCorpus() throws IOException {
+        int tiles = 0;
+        LevelCorpus corpus = LevelCorpus.open(this.corpusFile);
+        for (String folder : corpus.getFolders()) {
+            for (int number : corpus.getLevelNumbers(folder)) {
+                tiles += corpus.getLevel(folder, number).tileWidth;
+            }
+        }
+        return tiles;
+    }
+}
@@ -0,0 +1,40 @@
+package benchmarks;
+
+import engine.core.CompiledLevel;
+import engine.core.MarioLevel;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning a level string into a MarioLevel, which happens at the start of every game. Parsing
+ * happens once per level text, every later game instantiates the level from the cached compiled form.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LevelParseBenchmark {
+    @Param({"original/lvl-1.txt", "original/lvl-3.txt", "notch/lvl-1.txt", "notch/lvl-100.txt"})
+    public String level;
+
+    private String levelText;
+
+    @Setup(Level.Trial)
+    public void loadLevel() throws IOException {
+        this.levelText = GameState.readLevel(this.level);
+    }
+
+    @Benchmark
+    public MarioLevel parseLevel() {
+        return new MarioLevel(CompiledLevel.compile(this.levelText), false);
+    }
+
+    @Benchmark
+    public MarioLevel cachedLevel() {
+        return new MarioLevel(this.levelText, false);
+    }
+}
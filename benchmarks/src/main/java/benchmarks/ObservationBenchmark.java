@@ -0,0 +1,49 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of building the observation grids from the forward model at every detail level.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ObservationBenchmark {
+    @Param({"0", "1", "2"})
+    public int detail;
+
+    @Benchmark
+    public int[][] screenCompleteObservation(GameState state) {
+        return state.model.getScreenCompleteObservation(this.detail, this.detail);
+    }
+
+    @Benchmark
+    public int[][] screenSceneObservation(GameState state) {
+        return state.model.getScreenSceneObservation(this.detail);
+    }
+
+    @Benchmark
+    public int[][] screenEnemiesObservation(GameState state) {
+        return state.model.getScreenEnemiesObservation(this.detail);
+    }
+
+    @Benchmark
+    public int[][] marioCompleteObservation(GameState state) {
+        return state.model.getMarioCompleteObservation(this.detail, this.detail);
+    }
+
+    @Benchmark
+    public int[][] marioSceneObservation(GameState state) {
+        return state.model.getMarioSceneObservation(this.detail);
+    }
+
+    @Benchmark
+    public int[][] marioEnemiesObservation(GameState state) {
+        return state.model.getMarioEnemiesObservation(this.detail);
+    }
+}
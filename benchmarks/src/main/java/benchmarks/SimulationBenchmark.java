@@ -0,0 +1,62 @@
+package benchmarks;
+
+import engine.core.MarioForwardModel;
+import engine.core.MarioSnapshot;
+import engine.core.MarioWorld;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a single tick and of a single clone, both for the raw world and through the forward model that
+ * the agents use, and of branching the forward model with a reused snapshot instead of a clone.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimulationBenchmark {
+
+    @Benchmark
+    public MarioWorld worldUpdate(GameState state) {
+        state.restartIfFinished();
+        state.world.update(state.nextActions());
+        return state.world;
+    }
+
+    @Benchmark
+    public MarioWorld worldClone(GameState state) {
+        return state.prototype.clone();
+    }
+
+    @Benchmark
+    public MarioForwardModel forwardModelAdvance(GameState state) {
+        state.restartIfFinished();
+        state.model.advance(state.nextActions());
+        return state.model;
+    }
+
+    @Benchmark
+    public MarioForwardModel forwardModelClone(GameState state) {
+        return state.model.clone();
+    }
+
+    @Benchmark
+    public MarioForwardModel forwardModelPooledClone(GameState state) {
+        MarioForwardModel model = state.pool.clone(state.model);
+        state.pool.release(model);
+        return model;
+    }
+
+    @Benchmark
+    public MarioSnapshot forwardModelSnapshot(GameState state) {
+        return state.model.snapshot(state.snapshot);
+    }
+
+    @Benchmark
+    public MarioForwardModel forwardModelRestore(GameState state) {
+        state.model.restore(state.snapshot);
+        return state.model;
+    }
+}
@@ -0,0 +1,62 @@
+package benchmarks;
+
+import engine.core.CompiledLevel;
+import engine.core.VectorMarioEnv;
+import engine.helper.MarioActions;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of stepping many worlds together with VectorMarioEnv, one operation is one step of all of them.
+ * Comparing the worker counts shows how well the steps scale with cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VectorEnvBenchmark {
+    @Param({"64"})
+    public int envs;
+
+    @Param({"1", "0"})
+    public int workers;
+
+    private VectorMarioEnv env;
+    private int[] actions;
+    private int tick;
+
+    @Setup(Level.Trial)
+    public void createEnv() throws IOException {
+        ArrayList<CompiledLevel> levels = new ArrayList<>();
+        for (String level : new String[]{"original/lvl-1.txt", "original/lvl-3.txt", "notch/lvl-1.txt", "notch/lvl-100.txt"}) {
+            levels.add(CompiledLevel.compile(GameState.readLevel(level)));
+        }
+        this.env = new VectorMarioEnv(this.envs, levels, 200, 0, this.workers, 42);
+        this.actions = new int[this.envs];
+    }
+
+    @TearDown(Level.Trial)
+    public void closeEnv() {
+        this.env.close();
+    }
+
+    @Benchmark
+    public float[] step() {
+        //the same run right and jump pattern as GameState, shifted for every world
+        for (int i = 0; i < this.envs; i++) {
+            int action = (1 << MarioActions.RIGHT.getValue()) | (1 << MarioActions.SPEED.getValue());
+            if ((this.tick + i) % 24 < 8) {
+                action |= 1 << MarioActions.JUMP.getValue();
+            }
+            this.actions[i] = action;
+        }
+        this.tick += 1;
+        this.env.step(this.actions);
+        return this.env.getRewards();
+    }
+}
@@ -0,0 +1,141 @@
+"""Test client for engine.helper.SharedMemoryBridge.
+
+Start the bridge first, for example:
+    java -cp framework/target/classes engine.helper.SharedMemoryBridge /tmp/mario.bridge 16 levels/original
+then run:
+    python3 clients/mario_bridge_client.py /tmp/mario.bridge [steps]
+
+The client maps the bridge file, sends run right and jump actions to every world and prints the number of
+steps per second and the finished games. It only needs the python standard library.
+
+Python has no memory barriers, the sequence numbers are written and read with plain stores and loads. That is
+only correct on x86, which keeps stores in order and loads in order, so the bridge sees the actions before the
+request and the client sees the results after the response. The client refuses to start on any other cpu. There
+a client has to write the request with a release store and read the response with an acquire load, for example
+through C11 atomics.
+"""
+import mmap
+import platform
+import struct
+import sys
+import time
+
+MAGIC = 0x4D42524D
+VERSION = 1
+HEADER_SIZE = 64
+COMMAND_STEP = 1
+COMMAND_RESET = 2
+COMMAND_CLOSE = 3
+STATUSES = ["RUNNING", "WIN", "LOSE", "TIME_OUT"]
+
+LEFT, RIGHT, DOWN, SPEED, JUMP = 1, 2, 4, 8, 16
+# the cpus that keep plain stores in order and plain loads in order
+X86_MACHINES = ("x86_64", "amd64", "i386", "i486", "i586", "i686", "x86")
+
+
+def align(offset):
+    return (offset + 7) & ~7
+
+
+class MarioBridgeClient:
+    def __init__(self, path, timeout=30.0):
+        if platform.machine().lower() not in X86_MACHINES:
+            raise RuntimeError("the client relies on x86 memory ordering and can not run on %s" % platform.machine())
+        self.file = open(path, "r+b")
+        self.map = mmap.mmap(self.file.fileno(), 0)
+        deadline = time.time() + timeout
+        while self._int(0) != MAGIC:
+            if time.time() > deadline:
+                raise RuntimeError("the bridge did not start")
+            time.sleep(0.01)
+        if self._int(4) != VERSION:
+            raise RuntimeError("unsupported bridge version %d" % self._int(4))
+        self.num_envs = self._int(8)
+        self.obs_width = self._int(12)
+        self.obs_height = self._int(16)
+        self.mario_state_size = self._int(20)
+        self.ring_size = self._int(24)
+        self.obs_size = self.obs_width * self.obs_height
+        self.actions_offset = HEADER_SIZE
+        self.rewards_offset = align(self.actions_offset + self.num_envs)
+        self.dones_offset = align(self.rewards_offset + 4 * self.num_envs)
+        self.statuses_offset = align(self.dones_offset + self.num_envs)
+        self.mario_states_offset = align(self.statuses_offset + self.num_envs)
+        self.ring_offset = align(self.mario_states_offset + 4 * self.num_envs * self.mario_state_size)
+        self.sequence = self._int(40)
+
+    def _int(self, offset):
+        return struct.unpack_from("<i", self.map, offset)[0]
+
+    def _request(self, command):
+        struct.pack_into("<i", self.map, 36, command)
+        self.sequence = (self.sequence + 1) & 0x7FFFFFFF
+        # a release store on x86, see the module documentation
+        struct.pack_into("<i", self.map, 32, self.sequence)
+        if command == COMMAND_CLOSE:
+            return
+        spins = 0
+        while self._int(40) != self.sequence:
+            # let the bridge have the core when both share one
+            spins += 1
+            if spins > 100:
+                time.sleep(0)
+
+    def step(self, actions):
+        self.map[self.actions_offset:self.actions_offset + self.num_envs] = bytes(actions)
+        self._request(COMMAND_STEP)
+
+    def reset(self):
+        self._request(COMMAND_RESET)
+
+    def close(self):
+        self._request(COMMAND_CLOSE)
+        self.map.close()
+        self.file.close()
+
+    def rewards(self):
+        return struct.unpack_from("<%df" % self.num_envs, self.map, self.rewards_offset)
+
+    def dones(self):
+        return self.map[self.dones_offset:self.dones_offset + self.num_envs]
+
+    def statuses(self):
+        return [STATUSES[s] for s in self.map[self.statuses_offset:self.statuses_offset + self.num_envs]]
+
+    def mario_states(self):
+        count = self.num_envs * self.mario_state_size
+        return struct.unpack_from("<%df" % count, self.map, self.mario_states_offset)
+
+    def observation(self, world, frames_ago=0):
+        """The flat observation of one world, cell (x, y) is at x * obs_height + y."""
+        frame = self._int(44) - 1 - frames_ago
+        start = self.ring_offset + (frame % self.ring_size) * self.num_envs * self.obs_size + world * self.obs_size
+        return struct.unpack_from("<%db" % self.obs_size, self.map, start)
+
+
+def main():
+    if len(sys.argv) < 2:
+        print("usage: python3 mario_bridge_client.py <bridge file> [steps]")
+        return
+    steps = int(sys.argv[2]) if len(sys.argv) > 2 else 2000
+    client = MarioBridgeClient(sys.argv[1])
+    client.reset()
+    finished = {}
+    start = time.time()
+    for tick in range(steps):
+        actions = [RIGHT | SPEED | (JUMP if (tick + world) % 24 < 8 else 0) for world in range(client.num_envs)]
+        client.step(actions)
+        for done, status in zip(client.dones(), client.statuses()):
+            if done:
+                finished[status] = finished.get(status, 0) + 1
+    elapsed = time.time() - start
+    print("%d steps of %d worlds in %.2f seconds, %.0f steps per second" %
+          (steps, client.num_envs, elapsed, steps / elapsed))
+    print("finished games: %s" % finished)
+    print("mario of world 0: x %.1f y %.1f" % client.mario_states()[0:2])
+    print("observation of world 0 has %d cells" % len(client.observation(0)))
+    client.close()
+
+
+if __name__ == "__main__":
+    main()
@@ -1,9 +1,10 @@
 import agents.MarioAgent;
-import engine.core.MarioGame;
-import engine.core.MarioResult;
+import engine.helper.BatchRunner;
 import engine.helper.MarioStats;
 import levelGenerators.MarioLevelGenerator;
 
+import java.util.ArrayList;
+
 import static engine.helper.RunUtils.*;
 
 public class RunLevels {
@@ -15,7 +16,8 @@ public class RunLevels {
                 "\t[index = 2] using level generator (boolean; using preset levels if false)" +
                 "\t[index = 3] AI agent response limit (20 default)" +
                 "\t[index = 4...] preset levels (if not using generator). there should be exactly the number specified" +
-                "before (index 0) of filepaths, separated by space.");
+                "before (index 0) of filepaths, separated by space.\n" +
+                "\tthe number of worker threads can be set with -Dworkers=N (one per processor by default)");
     }
 
     public static void main(String[] args) {
@@ -43,16 +45,21 @@ public class RunLevels {
             }
         }
 
-        // Create a MarioGame instance, AI to play the game and level generator (not necessary if `levels' used)
-        MarioGame game = new MarioGame();
-        MarioAgent agent = new agents.robinBaumgarten.Agent();  // TODO: agent to play the game
+        // Create the batch runner, AI to play the game and level generator (not necessary if `levels' used)
+        BatchRunner runner = new BatchRunner(Integer.getInteger("workers", 0), agentTimer, 0);
+        BatchRunner.AgentFactory agent = new BatchRunner.AgentFactory() {
+            @Override
+            public MarioAgent createAgent(long seed) {
+                return new agents.robinBaumgarten.Agent();  // TODO: agent to play the game
+            }
+        };
         MarioLevelGenerator generator = new levelGenerators.notch.LevelGenerator();  // TODO: level generator
 
         if (!usingGenerator) {  // Make sure the value is correct if not using level generator.
             noLevels = levels.length;
         }
 
-        MarioStats average = new MarioStats();  // Keep average of statistics over all the runs
+        ArrayList<BatchRunner.Job> jobs = new ArrayList<>();
         for (int i = 0; i < noLevels; i++) {
             // Find level
             String level;
@@ -64,16 +71,16 @@ public class RunLevels {
 
             // Run the level several times
             for (int j = 0; j < repsPerLevel; j++) {
-                MarioResult result = game.runGame(agent, level, agentTimer, 0, false);
-
-                System.out.println((i+1) + "/" + noLevels + ";" + (j+1) + "/" + repsPerLevel + ": "
-                        + result.getGameStatus().toString());
-                MarioStats stats = resultToStats(result);
-                average = average.merge(stats);
+                jobs.add(new BatchRunner.Job(agent, (i+1) + "/" + noLevels + ";" + (j+1) + "/" + repsPerLevel,
+                        level, j));
             }
         }
 
+        MarioStats average = runner.run(jobs);  // Keep average of statistics over all the runs
+
         System.out.println("------------");
+        System.out.println(runner.getGamesPlayed() + " games on " + runner.getWorkers() + " workers in "
+                + runner.getElapsedSeconds() + " seconds (" + runner.getGamesPerSecond() + " games/s)");
         System.out.println(average.toString());
     }
 }
@@ -1,6 +1,7 @@
 package agents.robinBaumgarten;
 
 import engine.core.MarioForwardModel;
+import engine.helper.LongHashSet;
 import engine.helper.MarioTimer;
 import engine.helper.GameStatus;
 
@@ -10,12 +11,13 @@ public class AStarTree {
     public SearchNode bestPosition;
     public SearchNode furthestPosition;
     float currentSearchStartingMarioXPos;
-    ArrayList<SearchNode> posPool;
-    ArrayList<int[]> visitedStates = new ArrayList<int[]>();
+    SearchNodeHeap posPool = new SearchNodeHeap();
+    LongHashSet visitedStates = new LongHashSet(1024);
     private boolean requireReplanning = false;
 
     private ArrayList<boolean[]> currentActionPlan;
     int ticksBeforeReplanning = 0;
+    private int expansions = 0;
 
     private MarioForwardModel search(MarioTimer timer) {
         SearchNode current = bestPosition;
@@ -24,14 +26,17 @@ public class AStarTree {
         while (posPool.size() != 0
                 && ((bestPosition.sceneSnapshot.getMarioFloatPos()[0] - currentSearchStartingMarioXPos < maxRight) || !currentGood)
                 && timer.getRemainingTime() > 0) {
+            // the best node stays in the pool while it is simulated, it is either removed or re-sorted after
             current = pickBestPos(posPool);
             if (current == null) {
                 return null;
             }
             currentGood = false;
             float realRemainingTime = current.simulatePos();
+            expansions++;
 
             if (realRemainingTime < 0) {
+                posPool.remove(current);
                 continue;
             } else if (!current.isInVisitedList && isInVisited((int) current.sceneSnapshot.getMarioFloatPos()[0],
                     (int) current.sceneSnapshot.getMarioFloatPos()[1], current.timeElapsed)) {
@@ -39,13 +44,14 @@ public class AStarTree {
                 current.isInVisitedList = true;
                 current.remainingTime = realRemainingTime;
                 current.remainingTimeEstimated = realRemainingTime;
-                posPool.add(current);
+                posPool.update(current);
             } else if (realRemainingTime - current.remainingTimeEstimated > 0.1) {
                 // current item is not as good as anticipated. put it back in pool and look for best again
                 current.remainingTimeEstimated = realRemainingTime;
-                posPool.add(current);
+                posPool.update(current);
             } else {
                 currentGood = true;
+                posPool.remove(current);
                 visited((int) current.sceneSnapshot.getMarioFloatPos()[0], (int) current.sceneSnapshot.getMarioFloatPos()[1], current.timeElapsed);
                 posPool.addAll(current.generateChildren());
             }
@@ -68,7 +74,7 @@ public class AStarTree {
         SearchNode startPos = new SearchNode(null, repetitions, null);
         startPos.initializeRoot(model);
 
-        posPool = new ArrayList<SearchNode>();
+        posPool.clear();
         visitedStates.clear();
         posPool.addAll(startPos.generateChildren());
         currentSearchStartingMarioXPos = model.getMarioFloatPos()[0];
@@ -100,17 +106,11 @@ public class AStarTree {
         return actions;
     }
 
-    private SearchNode pickBestPos(ArrayList<SearchNode> posPool) {
-        SearchNode bestPos = null;
-        float bestPosCost = 10000000;
-        for (SearchNode current : posPool) {
-            float currentCost = current.getRemainingTime() + current.timeElapsed * 0.90f; // slightly bias towards furthest positions
-            if (currentCost < bestPosCost) {
-                bestPos = current;
-                bestPosCost = currentCost;
-            }
+    private SearchNode pickBestPos(SearchNodeHeap posPool) {
+        SearchNode bestPos = posPool.peek();
+        if (bestPos == null || bestPos.cost >= 10000000) {
+            return null;
         }
-        posPool.remove(bestPos);
         return bestPos;
     }
 
@@ -137,6 +137,7 @@ public class AStarTree {
         if (model.getGameStatus() == GameStatus.LOSE) {
             startSearch(originalModel, stepsPerSearch);
         }
+        expansions = 0;
         search(timer);
 
         boolean[] action = new boolean[5];
@@ -145,21 +146,36 @@ public class AStarTree {
         return action;
     }
 
+    /**
+     * @return the number of search nodes simulated during the last call to optimise
+     */
+    public int getExpansions() {
+        return expansions;
+    }
+
     private void visited(int x, int y, int t) {
-        visitedStates.add(new int[]{x, y, t});
+        visitedStates.add(visitedKey(x, y, t));
     }
 
     private boolean isInVisited(int x, int y, int t) {
         int timeDiff = 5;
         int xDiff = 2;
         int yDiff = 2;
-        for (int[] v : visitedStates) {
-            if (Math.abs(v[0] - x) < xDiff && Math.abs(v[1] - y) < yDiff && Math.abs(v[2] - t) < timeDiff
-                    && t >= v[2]) {
-                return true;
+        // look up every cell of the grid that is close enough instead of scanning all visited states
+        for (int vt = t - timeDiff + 1; vt <= t; vt++) {
+            for (int vx = x - xDiff + 1; vx < x + xDiff; vx++) {
+                for (int vy = y - yDiff + 1; vy < y + yDiff; vy++) {
+                    if (visitedStates.contains(visitedKey(vx, vy, vt))) {
+                        return true;
+                    }
+                }
             }
         }
         return false;
     }
 
+    private static long visitedKey(int x, int y, int t) {
+        return ((long) (x & 0x1FFFFF) << 42) | ((long) (y & 0x1FFFFF) << 21) | (t & 0x1FFFFF);
+    }
+
 }
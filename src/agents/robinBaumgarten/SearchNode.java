@@ -19,6 +19,11 @@ public class SearchNode {
     boolean[] action;
     int repetitions = 1;
 
+    // position in the open list
+    int heapIndex = -1;
+    long insertionOrder = 0;
+    float cost = 0;
+
     public float calcRemainingTime(float marioX, float marioXA) {
         return (100000 - (maxForwardMovement(marioXA, 1000) + marioX)) / Helper.maxMarioSpeed - 1000;
     }
@@ -30,6 +35,10 @@ public class SearchNode {
             return remainingTimeEstimated;
     }
 
+    public float getSearchCost() {
+        return getRemainingTime() + timeElapsed * 0.90f; // slightly bias towards furthest positions
+    }
+
     public float estimateRemainingTimeChild(boolean[] action, int repetitions) {
         float[] childbehaviorDistanceAndSpeed = Helper.estimateMaximumForwardMovement(
                 this.sceneSnapshot.getMarioFloatVelocity()[0], action, repetitions);
@@ -0,0 +1,141 @@
+package agents.robinBaumgarten;
+
+import java.util.ArrayList;
+
+/**
+ * Open list of the search, a binary heap of nodes ordered by their search cost. Every node knows its index
+ * in the heap so its cost can be changed in place. Nodes with the same cost come out in the order they were
+ * added or updated, which is the order the old linear scan over the pool picked them in.
+ */
+public class SearchNodeHeap {
+    private SearchNode[] nodes = new SearchNode[64];
+    private int size = 0;
+    private long insertions = 0;
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            nodes[i].heapIndex = -1;
+            nodes[i] = null;
+        }
+        size = 0;
+        insertions = 0;
+    }
+
+    public boolean contains(SearchNode node) {
+        return node.heapIndex >= 0 && node.heapIndex < size && nodes[node.heapIndex] == node;
+    }
+
+    public void add(SearchNode node) {
+        if (size == nodes.length) {
+            SearchNode[] grown = new SearchNode[nodes.length * 2];
+            System.arraycopy(nodes, 0, grown, 0, size);
+            nodes = grown;
+        }
+        node.cost = node.getSearchCost();
+        node.insertionOrder = insertions++;
+        nodes[size] = node;
+        node.heapIndex = size;
+        size++;
+        siftUp(node.heapIndex);
+    }
+
+    public void addAll(ArrayList<SearchNode> list) {
+        for (SearchNode node : list) {
+            add(node);
+        }
+    }
+
+    /**
+     * @return the node with the lowest cost without removing it, null if the heap is empty
+     */
+    public SearchNode peek() {
+        if (size == 0) {
+            return null;
+        }
+        return nodes[0];
+    }
+
+    /**
+     * @return the node with the lowest cost after removing it, null if the heap is empty
+     */
+    public SearchNode poll() {
+        if (size == 0) {
+            return null;
+        }
+        SearchNode best = nodes[0];
+        remove(best);
+        return best;
+    }
+
+    public void remove(SearchNode node) {
+        int index = node.heapIndex;
+        size--;
+        SearchNode last = nodes[size];
+        nodes[size] = null;
+        node.heapIndex = -1;
+        if (index != size) {
+            nodes[index] = last;
+            last.heapIndex = index;
+            siftDown(index);
+            siftUp(last.heapIndex);
+        }
+    }
+
+    /**
+     * Move a node that is already in the heap to its new place after its cost changed. The node is treated
+     * as if it was just added, so it goes behind the nodes it ties with.
+     *
+     * @param node a node in the heap whose remaining time was changed
+     */
+    public void update(SearchNode node) {
+        node.cost = node.getSearchCost();
+        node.insertionOrder = insertions++;
+        siftDown(node.heapIndex);
+        siftUp(node.heapIndex);
+    }
+
+    private void siftUp(int index) {
+        SearchNode node = nodes[index];
+        while (index > 0) {
+            int parent = (index - 1) >> 1;
+            if (!isBefore(node, nodes[parent])) {
+                break;
+            }
+            nodes[index] = nodes[parent];
+            nodes[index].heapIndex = index;
+            index = parent;
+        }
+        nodes[index] = node;
+        node.heapIndex = index;
+    }
+
+    private void siftDown(int index) {
+        SearchNode node = nodes[index];
+        int half = size >> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            if (child + 1 < size && isBefore(nodes[child + 1], nodes[child])) {
+                child++;
+            }
+            if (!isBefore(nodes[child], node)) {
+                break;
+            }
+            nodes[index] = nodes[child];
+            nodes[index].heapIndex = index;
+            index = child;
+        }
+        nodes[index] = node;
+        node.heapIndex = index;
+    }
+
+    private static boolean isBefore(SearchNode a, SearchNode b) {
+        if (a.cost != b.cost) {
+            return a.cost < b.cost;
+        }
+        return a.insertionOrder < b.insertionOrder;
+    }
+}
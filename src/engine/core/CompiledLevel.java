@@ -0,0 +1,554 @@
+package engine.core;
+
+import engine.helper.SpriteType;
+import engine.helper.StateHash;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A level that has been parsed once and stored in a compact form: one byte per tile, one byte per sprite
+ * template and the start and exit positions. MarioLevel instances are created from it without parsing the
+ * level text again, and get() keeps the most recently used compiled levels so the same text is not parsed on
+ * every game. The cache is keyed by a hash of the text, compares the text itself on a hit and holds at
+ * most getCacheSize() levels.
+ * Levels read from a ByteBuffer keep pointing into it, so levels from a mapped file are never copied.
+ */
+public class CompiledLevel {
+    private static final int MAGIC = 0x4D4C564C;
+    private static final int VERSION = 1;
+    static final SpriteType[] SPRITE_TYPES = SpriteType.values();
+    private static final int DEFAULT_CACHE_SIZE = 256;
+    private static int cacheSize = DEFAULT_CACHE_SIZE;
+    //least recently used first, guarded by its own lock
+    private static final LinkedHashMap<Long, CachedLevel> cache = new LinkedHashMap<Long, CachedLevel>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, CachedLevel> eldest) {
+            return this.size() > cacheSize;
+        }
+    };
+
+    public final int tileWidth;
+    public final int tileHeight;
+    public final int totalCoins;
+    public final int marioTileX, marioTileY, exitTileX, exitTileY;
+
+    //both buffers are indexed by x * tileHeight + y
+    private final ByteBuffer tiles;
+    private final ByteBuffer spriteTemplates;
+
+    private CompiledLevel(int tileWidth, int tileHeight, int totalCoins, int marioTileX, int marioTileY,
+                          int exitTileX, int exitTileY, ByteBuffer tiles, ByteBuffer spriteTemplates) {
+        this.tileWidth = tileWidth;
+        this.tileHeight = tileHeight;
+        this.totalCoins = totalCoins;
+        this.marioTileX = marioTileX;
+        this.marioTileY = marioTileY;
+        this.exitTileX = exitTileX;
+        this.exitTileY = exitTileY;
+        this.tiles = tiles;
+        this.spriteTemplates = spriteTemplates;
+    }
+
+    /**
+     * Get the compiled form of a level, parsing it only if the same level text was not compiled before
+     *
+     * @param level the level contents, each line a list of characters, separated by '\n'
+     * @return the compiled level, shared with other callers that passed the same text while it stays cached
+     */
+    public static CompiledLevel get(String level) {
+        long key = hashText(level);
+        synchronized (cache) {
+            CachedLevel cached = cache.get(key);
+            if (cached != null && cached.matches(level)) {
+                return cached.level;
+            }
+        }
+        CompiledLevel compiled = compile(level);
+        synchronized (cache) {
+            if (cacheSize > 0) {
+                cache.put(key, new CachedLevel(level, compiled));
+            }
+        }
+        return compiled;
+    }
+
+    /**
+     * Remove all the compiled levels kept by get()
+     */
+    public static void clearCache() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Change how many compiled levels get() keeps, the least recently used ones are dropped first
+     *
+     * @param size the number of levels to keep, 0 turns the cache off
+     */
+    public static void setCacheSize(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("The cache size can not be negative");
+        }
+        synchronized (cache) {
+            cacheSize = size;
+            Iterator<Long> keys = cache.keySet().iterator();
+            while (cache.size() > size) {
+                keys.next();
+                keys.remove();
+            }
+        }
+    }
+
+    /**
+     * @return the number of compiled levels get() keeps at most
+     */
+    public static int getCacheSize() {
+        synchronized (cache) {
+            return cacheSize;
+        }
+    }
+
+    //64 bit fnv-1a over the characters of the level text
+    private static long hashText(String level) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < level.length(); i++) {
+            hash = (hash ^ level.charAt(i)) * 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    //a cache entry keeps the text it was compiled from, so a hash collision is never taken for a hit
+    private static class CachedLevel {
+        private final String text;
+        private final CompiledLevel level;
+
+        private CachedLevel(String text, CompiledLevel level) {
+            this.text = text;
+            this.level = level;
+        }
+
+        private boolean matches(String text) {
+            return this.text.equals(text);
+        }
+    }
+
+    /**
+     * Parse a level without looking at the cache
+     *
+     * @param level the level contents, each line a list of characters, separated by '\n'
+     * @return the compiled level
+     */
+    public static CompiledLevel compile(String level) {
+        String[] lines = level.split("\n");
+        int tileWidth = lines[0].length();
+        int tileHeight = lines.length;
+        int totalCoins = 0;
+        int marioTileX = 0, marioTileY = 0, exitTileX = 0, exitTileY = 0;
+
+        int[][] tiles = new int[tileWidth][tileHeight];
+        SpriteType[][] templates = new SpriteType[tileWidth][tileHeight];
+        for (int y = 0; y < lines.length; y++) {
+            for (int x = 0; x < lines[y].length(); x++) {
+                templates[x][y] = SpriteType.NONE;
+            }
+        }
+
+        boolean marioLocInit = false;
+        boolean exitLocInit = false;
+        for (int y = 0; y < lines.length; y++) {
+            for (int x = 0; x < lines[y].length(); x++) {
+                char c = lines[y].charAt(x);
+                switch (c) {
+                    case 'M':
+                        marioTileX = x;
+                        marioTileY = y;
+                        marioLocInit = true;
+                        break;
+                    case 'F':
+                        exitTileX = x;
+                        exitTileY = y;
+                        exitLocInit = true;
+                        break;
+                    case 'y':
+                        templates[x][y] = SpriteType.SPIKY;
+                        break;
+                    case 'Y':
+                        templates[x][y] = SpriteType.SPIKY_WINGED;
+                        break;
+                    case 'E':
+                    case 'g':
+                        templates[x][y] = SpriteType.GOOMBA;
+                        break;
+                    case 'G':
+                        templates[x][y] = SpriteType.GOOMBA_WINGED;
+                        break;
+                    case 'k':
+                        templates[x][y] = SpriteType.GREEN_KOOPA;
+                        break;
+                    case 'K':
+                        templates[x][y] = SpriteType.GREEN_KOOPA_WINGED;
+                        break;
+                    case 'r':
+                        templates[x][y] = SpriteType.RED_KOOPA;
+                        break;
+                    case 'R':
+                        templates[x][y] = SpriteType.RED_KOOPA_WINGED;
+                        break;
+                    case 'X':
+                        //floor
+                        tiles[x][y] = 1;
+                        break;
+                    case '#':
+                        //pyramidBlock
+                        tiles[x][y] = 2;
+                        break;
+                    case '%':
+                        //jump through block
+                        int tempIndex = 0;
+                        if (x > 0 && lines[y].charAt(x - 1) == '%') {
+                            tempIndex += 2;
+                        }
+                        if (x < tiles.length - 1 && lines[y].charAt(x + 1) == '%') {
+                            tempIndex += 1;
+                        }
+                        tiles[x][y] = 43 + tempIndex;
+                        break;
+                    case '|':
+                        //background for jump through block
+                        tiles[x][y] = 47;
+                        break;
+                    case '*':
+                        //bullet bill
+                        tempIndex = 0;
+                        if (y > 0 && lines[y - 1].charAt(x) == '*') {
+                            tempIndex += 1;
+                        }
+                        if (y > 1 && lines[y - 2].charAt(x) == '*') {
+                            tempIndex += 1;
+                        }
+                        tiles[x][y] = 3 + tempIndex;
+                        break;
+                    case 'B':
+                        //bullet bill head
+                        tiles[x][y] = 3;
+                        break;
+                    case 'b':
+                        //bullet bill neck and body
+                        tempIndex = 0;
+                        if (y > 1 && lines[y - 2].charAt(x) == 'B') {
+                            tempIndex += 1;
+                        }
+                        tiles[x][y] = 4 + tempIndex;
+                        break;
+                    case '?':
+                    case '@':
+                        //mushroom question block
+                        tiles[x][y] = 8;
+                        break;
+                    case 'Q':
+                    case '!':
+                        //coin question block
+                        totalCoins += 1;
+                        tiles[x][y] = 11;
+                        break;
+                    case '1':
+                        //invisible 1 up block
+                        tiles[x][y] = 48;
+                        break;
+                    case '2':
+                        //invisible coin block
+                        totalCoins += 1;
+                        tiles[x][y] = 49;
+                        break;
+                    case 'D':
+                        //used
+                        tiles[x][y] = 14;
+                        break;
+                    case 'S':
+                        //normal block
+                        tiles[x][y] = 6;
+                        break;
+                    case 'C':
+                        //coin block
+                        totalCoins += 1;
+                        tiles[x][y] = 7;
+                        break;
+                    case 'U':
+                        //mushroom block
+                        tiles[x][y] = 50;
+                        break;
+                    case 'L':
+                        //1up block
+                        tiles[x][y] = 51;
+                        break;
+                    case 'o':
+                        //coin
+                        totalCoins += 1;
+                        tiles[x][y] = 15;
+                        break;
+                    case 't':
+                        //empty Pipe
+                        tempIndex = 0;
+                        boolean singlePipe = false;
+                        if (x < lines[y].length() - 1 && Character.toLowerCase(lines[y].charAt(x + 1)) != 't' &&
+                                x > 0 && Character.toLowerCase(lines[y].charAt(x - 1)) != 't') {
+                            singlePipe = true;
+                        }
+                        if (x > 0 && (tiles[x - 1][y] == 18 || tiles[x - 1][y] == 20)) {
+                            tempIndex += 1;
+                        }
+                        if (y > 0 && Character.toLowerCase(lines[y - 1].charAt(x)) == 't') {
+                            if (singlePipe) {
+                                tempIndex += 1;
+                            } else {
+                                tempIndex += 2;
+                            }
+                        }
+                        if (singlePipe) {
+                            tiles[x][y] = 52 + tempIndex;
+                        } else {
+                            tiles[x][y] = 18 + tempIndex;
+                        }
+                        break;
+                    case 'T':
+                        //flower pipe
+                        tempIndex = 0;
+                        singlePipe = false;
+                        if (x < lines[y].length() - 1 && Character.toLowerCase(lines[y].charAt(x + 1)) != 't' &&
+                                x > 0 && Character.toLowerCase(lines[y].charAt(x - 1)) != 't') {
+                            singlePipe = true;
+                        }
+                        if (x > 0 && (tiles[x - 1][y] == 18 || tiles[x - 1][y] == 20)) {
+                            tempIndex += 1;
+                        }
+                        if (y > 0 && Character.toLowerCase(lines[y - 1].charAt(x)) == 't') {
+                            if (singlePipe) {
+                                tempIndex += 1;
+                            } else {
+                                tempIndex += 2;
+                            }
+                        }
+                        if (singlePipe) {
+                            tiles[x][y] = 52 + tempIndex;
+                        } else {
+                            if (tempIndex == 0) {
+                                templates[x][y] = SpriteType.ENEMY_FLOWER;
+                            }
+                            tiles[x][y] = 18 + tempIndex;
+                        }
+                        break;
+                    case '<':
+                        //pipe top left
+                        tiles[x][y] = 18;
+                        break;
+                    case '>':
+                        //pipe top right
+                        tiles[x][y] = 19;
+                        break;
+                    case '[':
+                        //pipe body left
+                        tiles[x][y] = 20;
+                        break;
+                    case ']':
+                        //pipe body right
+                        tiles[x][y] = 21;
+                        break;
+                }
+            }
+        }
+        if (!marioLocInit) {
+            marioTileX = 0;
+            marioTileY = findFirstFloor(lines, marioTileX);
+        }
+        if (!exitLocInit) {
+            exitTileX = lines[0].length() - 1;
+            exitTileY = findFirstFloor(lines, exitTileX);
+        }
+        for (int y = exitTileY; y > Math.max(1, exitTileY - 11); y--) {
+            tiles[exitTileX][y] = 40;
+        }
+        tiles[exitTileX][Math.max(1, exitTileY - 11)] = 39;
+
+        byte[] packedTiles = new byte[tileWidth * tileHeight];
+        byte[] packedTemplates = new byte[tileWidth * tileHeight];
+        for (int x = 0; x < tileWidth; x++) {
+            for (int y = 0; y < tileHeight; y++) {
+                packedTiles[x * tileHeight + y] = (byte) tiles[x][y];
+                SpriteType template = templates[x][y] == null ? SpriteType.NONE : templates[x][y];
+                packedTemplates[x * tileHeight + y] = (byte) template.ordinal();
+            }
+        }
+        return new CompiledLevel(tileWidth, tileHeight, totalCoins, marioTileX, marioTileY, exitTileX, exitTileY,
+                ByteBuffer.wrap(packedTiles), ByteBuffer.wrap(packedTemplates));
+    }
+
+    /**
+     * @param xTile the x position of the tile, must be inside the level
+     * @param yTile the y position of the tile, must be inside the level
+     * @return the tile index at that position when the level starts
+     */
+    public int getTile(int xTile, int yTile) {
+        return this.tiles.get(xTile * this.tileHeight + yTile) & 0xFF;
+    }
+
+    /**
+     * @param xTile the x position of the tile, must be inside the level
+     * @param yTile the y position of the tile, must be inside the level
+     * @return the enemy that spawns at that position, NONE if there is no enemy
+     */
+    public SpriteType getSpriteTemplate(int xTile, int yTile) {
+        return SPRITE_TYPES[this.spriteTemplates.get(xTile * this.tileHeight + yTile)];
+    }
+
+    /**
+     * Get a 64 bit hash of everything that changes how the level plays, two levels with the same hash are the
+     * same level. The hash is computed on every call.
+     *
+     * @return the hash of the level size, mario and exit positions, tiles and enemies
+     */
+    public long getHash() {
+        long hash = StateHash.mix(0, ((long) this.tileWidth << 32) | this.tileHeight);
+        hash = StateHash.mix(hash, ((long) this.marioTileX << 32) | (this.marioTileY & 0xFFFFFFFFL));
+        hash = StateHash.mix(hash, ((long) this.exitTileX << 32) | (this.exitTileY & 0xFFFFFFFFL));
+        for (int i = 0; i < this.tiles.limit(); i++) {
+            hash = StateHash.mix(hash, ((this.tiles.get(i) & 0xFF) << 8) | this.spriteTemplates.get(i));
+        }
+        return hash;
+    }
+
+    /**
+     * Write the compiled level in its binary form
+     *
+     * @param out where the level is written to
+     * @throws IOException if writing fails
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeShort(this.tileWidth);
+        out.writeShort(this.tileHeight);
+        out.writeShort(this.totalCoins);
+        out.writeShort(this.marioTileX);
+        out.writeShort(this.marioTileY);
+        out.writeShort(this.exitTileX);
+        out.writeShort(this.exitTileY);
+        writeBytes(out, this.tiles);
+        writeBytes(out, this.spriteTemplates);
+    }
+
+    /**
+     * Read a level written by write()
+     *
+     * @param in where the level is read from
+     * @return the compiled level
+     * @throws IOException if reading fails or the data is not a compiled level
+     */
+    public static CompiledLevel read(DataInput in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a compiled level");
+        }
+        int version = in.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported compiled level version " + version);
+        }
+        int tileWidth = in.readUnsignedShort();
+        int tileHeight = in.readUnsignedShort();
+        int totalCoins = in.readUnsignedShort();
+        int marioTileX = in.readShort();
+        int marioTileY = in.readShort();
+        int exitTileX = in.readShort();
+        int exitTileY = in.readShort();
+        byte[] tiles = new byte[tileWidth * tileHeight];
+        byte[] spriteTemplates = new byte[tileWidth * tileHeight];
+        in.readFully(tiles);
+        in.readFully(spriteTemplates);
+        return create(tileWidth, tileHeight, totalCoins, marioTileX, marioTileY, exitTileX, exitTileY,
+                ByteBuffer.wrap(tiles), ByteBuffer.wrap(spriteTemplates));
+    }
+
+    /**
+     * Read a level written by write() without copying it, the level keeps using the bytes of the buffer
+     *
+     * @param in where the level is read from, its position is moved to the end of the level
+     * @return the compiled level
+     * @throws IOException if the data is not a compiled level
+     */
+    public static CompiledLevel read(ByteBuffer in) throws IOException {
+        if (in.getInt() != MAGIC) {
+            throw new IOException("Not a compiled level");
+        }
+        int version = in.get() & 0xFF;
+        if (version != VERSION) {
+            throw new IOException("Unsupported compiled level version " + version);
+        }
+        int tileWidth = in.getShort() & 0xFFFF;
+        int tileHeight = in.getShort() & 0xFFFF;
+        int totalCoins = in.getShort() & 0xFFFF;
+        int marioTileX = in.getShort();
+        int marioTileY = in.getShort();
+        int exitTileX = in.getShort();
+        int exitTileY = in.getShort();
+        ByteBuffer tiles = slice(in, tileWidth * tileHeight);
+        ByteBuffer spriteTemplates = slice(in, tileWidth * tileHeight);
+        return create(tileWidth, tileHeight, totalCoins, marioTileX, marioTileY, exitTileX, exitTileY,
+                tiles, spriteTemplates);
+    }
+
+    private static CompiledLevel create(int tileWidth, int tileHeight, int totalCoins, int marioTileX, int marioTileY,
+                                        int exitTileX, int exitTileY, ByteBuffer tiles, ByteBuffer spriteTemplates) throws IOException {
+        for (int i = 0; i < spriteTemplates.limit(); i++) {
+            byte template = spriteTemplates.get(i);
+            if (template < 0 || template >= SPRITE_TYPES.length) {
+                throw new IOException("Invalid sprite template " + template);
+            }
+        }
+        return new CompiledLevel(tileWidth, tileHeight, totalCoins, marioTileX, marioTileY, exitTileX, exitTileY,
+                tiles, spriteTemplates);
+    }
+
+    //the Buffer casts keep the class running on java 8, where limit and position return a Buffer
+    private static ByteBuffer slice(ByteBuffer in, int length) throws IOException {
+        if (in.remaining() < length) {
+            throw new IOException("Compiled level is cut off");
+        }
+        ByteBuffer slice = in.slice();
+        ((Buffer) slice).limit(length);
+        ((Buffer) in).position(in.position() + length);
+        return slice;
+    }
+
+    private static void writeBytes(DataOutput out, ByteBuffer bytes) throws IOException {
+        for (int i = 0; i < bytes.limit(); i++) {
+            out.writeByte(bytes.get(i));
+        }
+    }
+
+    private static int findFirstFloor(String[] lines, int x) {
+        boolean skipLines = true;
+        for (int i = lines.length - 1; i >= 0; i--) {
+            char c = lines[i].charAt(x);
+            if (isSolid(c)) {
+                skipLines = false;
+                continue;
+            }
+            if (!skipLines && !isSolid(c)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isSolid(char c) {
+        return c == 'X' || c == '#' || c == '@' || c == '!' || c == 'B' || c == 'C' ||
+                c == 'Q' || c == '<' || c == '>' || c == '[' || c == ']' || c == '?' ||
+                c == 'S' || c == 'U' || c == 'D' || c == '%' || c == 't' || c == 'T';
+    }
+}
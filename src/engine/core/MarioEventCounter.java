@@ -0,0 +1,121 @@
+package engine.core;
+
+import engine.helper.EventType;
+
+import java.util.List;
+
+/**
+ * Running counts of the events of a game, kept by event type and by event type and parameter. Every event
+ * is looked at once when it is added, after that all the statistics of MarioResult are read without going
+ * over the events again.
+ */
+public class MarioEventCounter {
+    private final int[] typeCounts;
+    private int[][] paramCounts;
+    private int destroyedBricks;
+    //the last jump, to measure the jump when mario lands
+    private float jumpStartX;
+    private int jumpStartTime;
+    private float maxXJump;
+    private int maxJumpAirTime;
+
+    public MarioEventCounter() {
+        int maxType = 0;
+        for (EventType type : EventType.values()) {
+            maxType = Math.max(maxType, type.getValue());
+        }
+        this.typeCounts = new int[maxType + 1];
+        this.paramCounts = new int[maxType + 1][];
+        this.destroyedBricks = 0;
+        this.jumpStartX = -100;
+        this.jumpStartTime = -100;
+        this.maxXJump = 0;
+        this.maxJumpAirTime = 0;
+    }
+
+    /**
+     * Count a single event, events have to be added in the order they happened in
+     *
+     * @param event the event to count
+     */
+    public void add(MarioEvent event) {
+        int type = event.getEventType();
+        int param = event.getEventParam();
+        this.typeCounts[type] += 1;
+        //negative parameters are not used by the engine and are only counted by type
+        if (param >= 0) {
+            int[] counts = this.paramCounts[type];
+            if (counts == null || param >= counts.length) {
+                int[] grown = new int[Math.max(param + 1, 32)];
+                if (counts != null) {
+                    System.arraycopy(counts, 0, grown, 0, counts.length);
+                }
+                this.paramCounts[type] = counts = grown;
+            }
+            counts[param] += 1;
+        }
+
+        if (type == EventType.BUMP.getValue() && param == MarioForwardModel.OBS_BRICK && event.getMarioState() > 0) {
+            this.destroyedBricks += 1;
+        } else if (type == EventType.JUMP.getValue()) {
+            this.jumpStartX = event.getMarioX();
+            this.jumpStartTime = event.getTime();
+        } else if (type == EventType.LAND.getValue()) {
+            this.maxXJump = Math.max(this.maxXJump, Math.abs(event.getMarioX() - this.jumpStartX));
+            this.maxJumpAirTime = Math.max(this.maxJumpAirTime, event.getTime() - this.jumpStartTime);
+        }
+    }
+
+    /**
+     * Count a list of events in order
+     *
+     * @param events the events to count
+     */
+    public void addAll(List<MarioEvent> events) {
+        for (int i = 0; i < events.size(); i++) {
+            this.add(events.get(i));
+        }
+    }
+
+    /**
+     * @param type the event type
+     * @return the number of events of that type
+     */
+    public int getCount(EventType type) {
+        return this.typeCounts[type.getValue()];
+    }
+
+    /**
+     * @param type  the event type
+     * @param param the event parameter, like the sprite type of a kill or the block of a bump
+     * @return the number of events of that type with that parameter
+     */
+    public int getCount(EventType type, int param) {
+        int[] counts = this.paramCounts[type.getValue()];
+        if (counts == null || param < 0 || param >= counts.length) {
+            return 0;
+        }
+        return counts[param];
+    }
+
+    /**
+     * @return the number of bricks bumped by large or fire mario
+     */
+    public int getDestroyedBricks() {
+        return this.destroyedBricks;
+    }
+
+    /**
+     * @return the largest x distance between a jump and the landing after it
+     */
+    public float getMaxXJump() {
+        return this.maxXJump;
+    }
+
+    /**
+     * @return the largest number of ticks between a jump and the landing after it
+     */
+    public int getMaxJumpAirTime() {
+        return this.maxJumpAirTime;
+    }
+}
@@ -6,6 +6,7 @@ import engine.helper.SpriteType;
 import engine.sprites.MarioSprite;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
 public class MarioForwardModel {
     private static final int OBS_SCENE_SHIFT = 16;
@@ -65,7 +66,61 @@ public class MarioForwardModel {
     // Enemies Detail 2
     public static final int OBS_ENEMY = 1;
 
+    //generalized values for every detail level, indexed by sprite type ordinal and by tile index
+    private static final int[][] SPRITE_GENERALIZATION = new int[3][SpriteType.values().length];
+    private static final int[][] BLOCK_GENERALIZATION = new int[3][256];
+    //used for unknown detail levels
+    private static final int[] SPRITE_UNDEF = new int[SpriteType.values().length];
+    private static final int[] BLOCK_UNDEF = new int[256];
+
+    static {
+        for (int detail = 0; detail < 3; detail++) {
+            for (SpriteType sprite : SpriteType.values()) {
+                SPRITE_GENERALIZATION[detail][sprite.ordinal()] = computeSpriteTypeGeneralization(sprite, detail);
+            }
+            for (int tile = 0; tile < 256; tile++) {
+                BLOCK_GENERALIZATION[detail][tile] = computeBlockValueGeneralization(tile, detail);
+            }
+        }
+        Arrays.fill(SPRITE_UNDEF, OBS_UNDEF);
+        Arrays.fill(BLOCK_UNDEF, OBS_UNDEF);
+        BLOCK_UNDEF[0] = OBS_NONE;
+    }
+
     public static int getSpriteTypeGeneralization(SpriteType sprite, int detail) {
+        return getSpriteGeneralizationTable(detail)[sprite.ordinal()];
+    }
+
+    public static int getBlockValueGeneralization(int tile, int detail) {
+        if (tile < 0 || tile >= BLOCK_UNDEF.length) {
+            return computeBlockValueGeneralization(tile, detail);
+        }
+        return getBlockGeneralizationTable(detail)[tile];
+    }
+
+    /**
+     * @param detail the detail level of the enemies
+     * @return the generalized value of every sprite type at that detail, indexed by ordinal. Must not be changed.
+     */
+    static int[] getSpriteGeneralizationTable(int detail) {
+        if (detail < 0 || detail >= SPRITE_GENERALIZATION.length) {
+            return SPRITE_UNDEF;
+        }
+        return SPRITE_GENERALIZATION[detail];
+    }
+
+    /**
+     * @param detail the detail level of the scene
+     * @return the generalized value of every tile index from 0 to 255 at that detail. Must not be changed.
+     */
+    static int[] getBlockGeneralizationTable(int detail) {
+        if (detail < 0 || detail >= BLOCK_GENERALIZATION.length) {
+            return BLOCK_UNDEF;
+        }
+        return BLOCK_GENERALIZATION[detail];
+    }
+
+    private static int computeSpriteTypeGeneralization(SpriteType sprite, int detail) {
         switch (detail) {
             case (0):
                 switch (sprite) {
@@ -115,7 +170,7 @@ public class MarioForwardModel {
         return OBS_UNDEF;
     }
 
-    public static int getBlockValueGeneralization(int tile, int detail) {
+    private static int computeBlockValueGeneralization(int tile, int detail) {
         if (tile == 0) {
             return OBS_NONE;
         }
@@ -233,7 +288,11 @@ public class MarioForwardModel {
      * @return a clone from the current forward model state
      */
     public MarioForwardModel clone() {
-        MarioForwardModel model = new MarioForwardModel(this.world.clone());
+        return this.cloneInto(new MarioForwardModel(new MarioWorld(null)));
+    }
+
+    MarioForwardModel cloneInto(MarioForwardModel model) {
+        this.world.cloneInto(model.world);
         model.fallKill = this.fallKill;
         model.stompKill = this.stompKill;
         model.fireKill = this.fireKill;
@@ -244,6 +303,53 @@ public class MarioForwardModel {
         return model;
     }
 
+    /**
+     * Save the current forward model state so it can be restored later. Cheaper than clone when
+     * the same model is used to try many branches from one state.
+     *
+     * @return a new snapshot of the current forward model state
+     */
+    public MarioSnapshot snapshot() {
+        return this.snapshot(null);
+    }
+
+    /**
+     * Save the current forward model state into an existing snapshot
+     *
+     * @param snapshot a snapshot that is no longer needed and will be overwritten, null to create a new one
+     * @return the snapshot holding the current forward model state
+     */
+    public MarioSnapshot snapshot(MarioSnapshot snapshot) {
+        if (snapshot == null) {
+            snapshot = new MarioSnapshot();
+        }
+        this.world.saveSnapshot(snapshot);
+        snapshot.fallKill = this.fallKill;
+        snapshot.stompKill = this.stompKill;
+        snapshot.fireKill = this.fireKill;
+        snapshot.shellKill = this.shellKill;
+        snapshot.mushrooms = this.mushrooms;
+        snapshot.flowers = this.flowers;
+        snapshot.breakBlock = this.breakBlock;
+        return snapshot;
+    }
+
+    /**
+     * Return the forward model to a saved state. The snapshot is not changed and can be restored again.
+     *
+     * @param snapshot a snapshot taken from this model or one of its clones
+     */
+    public void restore(MarioSnapshot snapshot) {
+        this.world.restoreSnapshot(snapshot);
+        this.fallKill = snapshot.fallKill;
+        this.stompKill = snapshot.stompKill;
+        this.fireKill = snapshot.fireKill;
+        this.shellKill = snapshot.shellKill;
+        this.mushrooms = snapshot.mushrooms;
+        this.flowers = snapshot.flowers;
+        this.breakBlock = snapshot.breakBlock;
+    }
+
     /**
      * Advance the forward model using the action array
      *
@@ -279,6 +385,16 @@ public class MarioForwardModel {
         }
     }
 
+    /**
+     * Get a 64 bit hash of the current game state that can be used as a key in transposition tables.
+     * It covers mario, all the sprites and every tile that changed, but not the time left or the stats.
+     *
+     * @return the same value for states that behave the same from now on
+     */
+    public long getStateHash() {
+        return this.world.getStateHash();
+    }
+
     /**
      * Get the current state of the running game
      *
@@ -641,4 +757,162 @@ public class MarioForwardModel {
     public int[][] getMarioSceneObservation(int detail) {
         return this.world.getSceneObservation(this.world.mario.x, this.world.mario.y, detail);
     }
+
+    /**
+     * The current screen status as a 2D tile grid around the center of screen, written into a grid supplied by the caller so nothing is allocated
+     *
+     * @param sceneDetail the detail level of the scene: 0 all detail, 1 less detailed, 2
+     *                    binary detail
+     * @param enemyDetail the detail level of the current enemies: 0 all details, 1 less
+     *                    detailed, 2 binary detail
+     * @param buffer      a grid of at least obsGridWidth x obsGridHeight that is overwritten
+     * @return the same buffer, indexed as [x][y]
+     */
+    public int[][] getScreenCompleteObservation(int sceneDetail, int enemyDetail, int[][] buffer) {
+        return this.world.getMergedObservation(this.world.cameraX + MarioGame.width / 2, MarioGame.height / 2, sceneDetail, enemyDetail, buffer);
+    }
+
+    /**
+     * The current screen status as a 2D tile grid around the center of screen, written into a flat array supplied by the caller
+     *
+     * @param sceneDetail the detail level of the scene: 0 all detail, 1 less detailed, 2
+     *                    binary detail
+     * @param enemyDetail the detail level of the current enemies: 0 all details, 1 less
+     *                    detailed, 2 binary detail
+     * @param buffer      an array of at least obsGridWidth * obsGridHeight values that is overwritten
+     * @return the same buffer where the cell (x, y) is at index x * obsGridHeight + y
+     */
+    public int[] getScreenCompleteObservation(int sceneDetail, int enemyDetail, int[] buffer) {
+        return this.world.getMergedObservation(this.world.cameraX + MarioGame.width / 2, MarioGame.height / 2, sceneDetail, enemyDetail, buffer);
+    }
+
+    /**
+     * The current enemies on the screen as a 2D tile grid around the center of
+     * screen, written into a grid supplied by the caller so nothing is allocated
+     *
+     * @param detail the detail level of the current enemies: 0 all details, 1 less
+     *               detailed, 2 binary detail
+     * @param buffer a grid of at least obsGridWidth x obsGridHeight that is overwritten
+     * @return the same buffer, indexed as [x][y]
+     */
+    public int[][] getScreenEnemiesObservation(int detail, int[][] buffer) {
+        return this.world.getEnemiesObservation(this.world.cameraX + MarioGame.width / 2, MarioGame.height / 2, detail, buffer);
+    }
+
+    /**
+     * The current enemies on the screen as a 2D tile grid around the center of
+     * screen, written into a flat array supplied by the caller
+     *
+     * @param detail the detail level of the current enemies: 0 all details, 1 less
+     *               detailed, 2 binary detail
+     * @param buffer an array of at least obsGridWidth * obsGridHeight values that is overwritten
+     * @return the same buffer where the cell (x, y) is at index x * obsGridHeight + y
+     */
+    public int[] getScreenEnemiesObservation(int detail, int[] buffer) {
+        return this.world.getEnemiesObservation(this.world.cameraX + MarioGame.width / 2, MarioGame.height / 2, detail, buffer);
+    }
+
+    /**
+     * The current objects (not enemies) on the screen as a 2D tile grid around the
+     * center of screen, written into a grid supplied by the caller so nothing is allocated
+     *
+     * @param detail the detail level of the scene: 0 all detail, 1 less detailed, 2
+     *               binary detail
+     * @param buffer a grid of at least obsGridWidth x obsGridHeight that is overwritten
+     * @return the same buffer, indexed as [x][y]
+     */
+    public int[][] getScreenSceneObservation(int detail, int[][] buffer) {
+        return this.world.getSceneObservation(this.world.cameraX + MarioGame.width / 2, MarioGame.height / 2, detail, buffer);
+    }
+
+    /**
+     * The current objects (not enemies) on the screen as a 2D tile grid around the
+     * center of screen, written into a flat array supplied by the caller
+     *
+     * @param detail the detail level of the scene: 0 all detail, 1 less detailed, 2
+     *               binary detail
+     * @param buffer an array of at least obsGridWidth * obsGridHeight values that is overwritten
+     * @return the same buffer where the cell (x, y) is at index x * obsGridHeight + y
+     */
+    public int[] getScreenSceneObservation(int detail, int[] buffer) {
+        return this.world.getSceneObservation(this.world.cameraX + MarioGame.width / 2, MarioGame.height / 2, detail, buffer);
+    }
+
+    /**
+     * The current screen status as a 2D tile grid around mario, written into a grid supplied by the caller so nothing is allocated
+     *
+     * @param sceneDetail the detail level of the scene: 0 all detail, 1 less detailed, 2
+     *                    binary detail
+     * @param enemyDetail the detail level of the current enemies: 0 all details, 1 less
+     *                    detailed, 2 binary detail
+     * @param buffer      a grid of at least obsGridWidth x obsGridHeight that is overwritten
+     * @return the same buffer, indexed as [x][y]
+     */
+    public int[][] getMarioCompleteObservation(int sceneDetail, int enemyDetail, int[][] buffer) {
+        return this.world.getMergedObservation(this.world.mario.x, this.world.mario.y, sceneDetail, enemyDetail, buffer);
+    }
+
+    /**
+     * The current screen status as a 2D tile grid around mario, written into a flat array supplied by the caller
+     *
+     * @param sceneDetail the detail level of the scene: 0 all detail, 1 less detailed, 2
+     *                    binary detail
+     * @param enemyDetail the detail level of the current enemies: 0 all details, 1 less
+     *                    detailed, 2 binary detail
+     * @param buffer      an array of at least obsGridWidth * obsGridHeight values that is overwritten
+     * @return the same buffer where the cell (x, y) is at index x * obsGridHeight + y
+     */
+    public int[] getMarioCompleteObservation(int sceneDetail, int enemyDetail, int[] buffer) {
+        return this.world.getMergedObservation(this.world.mario.x, this.world.mario.y, sceneDetail, enemyDetail, buffer);
+    }
+
+    /**
+     * The current enemies on the screen as a 2D tile grid around mario, written into a grid supplied by the caller so nothing is allocated
+     *
+     * @param detail the detail level of the current enemies: 0 all details, 1 less
+     *               detailed, 2 binary detail
+     * @param buffer a grid of at least obsGridWidth x obsGridHeight that is overwritten
+     * @return the same buffer, indexed as [x][y]
+     */
+    public int[][] getMarioEnemiesObservation(int detail, int[][] buffer) {
+        return this.world.getEnemiesObservation(this.world.mario.x, this.world.mario.y, detail, buffer);
+    }
+
+    /**
+     * The current enemies on the screen as a 2D tile grid around mario, written into a flat array supplied by the caller
+     *
+     * @param detail the detail level of the current enemies: 0 all details, 1 less
+     *               detailed, 2 binary detail
+     * @param buffer an array of at least obsGridWidth * obsGridHeight values that is overwritten
+     * @return the same buffer where the cell (x, y) is at index x * obsGridHeight + y
+     */
+    public int[] getMarioEnemiesObservation(int detail, int[] buffer) {
+        return this.world.getEnemiesObservation(this.world.mario.x, this.world.mario.y, detail, buffer);
+    }
+
+    /**
+     * The current objects (not enemies) on the screen as a 2D tile grid around
+     * mario, written into a grid supplied by the caller so nothing is allocated
+     *
+     * @param detail the detail level of the scene: 0 all detail, 1 less detailed, 2
+     *               binary detail
+     * @param buffer a grid of at least obsGridWidth x obsGridHeight that is overwritten
+     * @return the same buffer, indexed as [x][y]
+     */
+    public int[][] getMarioSceneObservation(int detail, int[][] buffer) {
+        return this.world.getSceneObservation(this.world.mario.x, this.world.mario.y, detail, buffer);
+    }
+
+    /**
+     * The current objects (not enemies) on the screen as a 2D tile grid around
+     * mario, written into a flat array supplied by the caller
+     *
+     * @param detail the detail level of the scene: 0 all detail, 1 less detailed, 2
+     *               binary detail
+     * @param buffer an array of at least obsGridWidth * obsGridHeight values that is overwritten
+     * @return the same buffer where the cell (x, y) is at index x * obsGridHeight + y
+     */
+    public int[] getMarioSceneObservation(int detail, int[] buffer) {
+        return this.world.getSceneObservation(this.world.mario.x, this.world.mario.y, detail, buffer);
+    }
 }
@@ -0,0 +1,64 @@
+package engine.core;
+
+import java.util.ArrayList;
+
+/**
+ * Recycles forward models that a search agent does not need anymore, so cloning a model reuses the world,
+ * level arrays, sprite lists and sprites of a released one instead of allocating new ones. A sprite is copied
+ * into the released sprite of the same type at its place in the list, and only cloned when there is none.
+ * A pool is not thread safe, every agent should keep its own.
+ */
+public class MarioForwardModelPool {
+    private final ArrayList<MarioForwardModel> freeModels;
+    private final int maxSize;
+
+    public MarioForwardModelPool() {
+        this(1024);
+    }
+
+    /**
+     * @param maxSize the largest number of released models kept, models released after that are dropped
+     */
+    public MarioForwardModelPool(int maxSize) {
+        this.freeModels = new ArrayList<>();
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Create a clone of a forward model, reusing a released model if there is one
+     *
+     * @param model the forward model to clone
+     * @return a clone from the current forward model state
+     */
+    public MarioForwardModel clone(MarioForwardModel model) {
+        if (this.freeModels.isEmpty()) {
+            return model.clone();
+        }
+        return model.cloneInto(this.freeModels.remove(this.freeModels.size() - 1));
+    }
+
+    /**
+     * Give a forward model back to the pool. The model must not be used after it is released.
+     *
+     * @param model a forward model that was returned by clone
+     */
+    public void release(MarioForwardModel model) {
+        if (model != null && this.freeModels.size() < this.maxSize) {
+            this.freeModels.add(model);
+        }
+    }
+
+    /**
+     * @return the number of released models waiting to be reused
+     */
+    public int getFreeCount() {
+        return this.freeModels.size();
+    }
+
+    /**
+     * Drop all the released models
+     */
+    public void clear() {
+        this.freeModels.clear();
+    }
+}
@@ -5,7 +5,6 @@ import agents.human.Agent;
 import engine.graphics.MarioLevelRender;
 import engine.graphics.MarioRender;
 import engine.helper.GameStatus;
-import engine.helper.MarioActions;
 import engine.helper.MarioTimer;
 
 import javax.swing.*;
@@ -13,6 +12,7 @@ import java.awt.*;
 import java.awt.event.KeyAdapter;
 import java.awt.image.VolatileImage;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 public class MarioGame {
     /**
@@ -49,6 +49,17 @@ public class MarioGame {
      */
     public boolean pause = false;
 
+    /**
+     * keep every game event and agent action in the result of runGame and playGame, the statistics of the
+     * result are counted while the game runs either way
+     */
+    private boolean logEvents = true;
+
+    /**
+     * keep a one byte per tick trace of the agent actions in the summary of runSimulation
+     */
+    private boolean traceActions = false;
+
     /**
      * events that kills the player when it happens only care about type and param
      */
@@ -77,6 +88,26 @@ public class MarioGame {
         this.killEvents = killEvents;
     }
 
+    /**
+     * Choose if the results of runGame and playGame keep the full list of game events and agent actions.
+     * Without them getGameEvents and getAgentEvents return null but all the other statistics still work.
+     *
+     * @param logEvents keep the events in the result, true by default
+     */
+    public void setLogEvents(boolean logEvents) {
+        this.logEvents = logEvents;
+    }
+
+    /**
+     * Choose if the summaries of runSimulation keep a compact trace of the agent actions, which costs one byte
+     * per tick instead of an event object per tick
+     *
+     * @param traceActions keep the action trace in the summary, false by default
+     */
+    public void setTraceActions(boolean traceActions) {
+        this.traceActions = traceActions;
+    }
+
     private int getDelay(int fps) {
         if (fps <= 0) {
             return 0;
@@ -222,6 +253,74 @@ public class MarioGame {
         return this.gameLoop(level, timer, marioState, visuals, fps);
     }
 
+    /**
+     * Run a certain mario level with a certain agent as fast as possible. There are no visuals, no frame delay
+     * and no event history unless it is asked for, and the result does not keep the world alive.
+     *
+     * @param agent      the current AI agent used to play the game
+     * @param level      a string that constitutes the mario level, it uses the same representation as the VGLC but with more details. for more details about each symbol check the json file in the levels folder.
+     * @param timer      number of ticks for that level to be played. Setting timer to anything <=0 will make the time infinite
+     * @param marioState the initial state that mario appears in. 0 small mario, 1 large mario, and 2 fire mario.
+     * @param logEvents  keep the game events and the agent actions in the returned summary
+     * @return a summary of the played game
+     */
+    public MarioSummary runSimulation(MarioAgent agent, String level, int timer, int marioState, boolean logEvents) {
+        return this.runSimulation(agent, MarioWorld.createGame(level, timer, marioState, this.killEvents), logEvents);
+    }
+
+    /**
+     * Run a compiled mario level with a certain agent as fast as possible, like runSimulation with a level string
+     *
+     * @param agent      the current AI agent used to play the game
+     * @param level      a compiled level, for example one returned by LevelCorpus.getLevel
+     * @param timer      number of ticks for that level to be played. Setting timer to anything <=0 will make the time infinite
+     * @param marioState the initial state that mario appears in. 0 small mario, 1 large mario, and 2 fire mario.
+     * @param logEvents  keep the game events and the agent actions in the returned summary
+     * @return a summary of the played game
+     */
+    public MarioSummary runSimulation(MarioAgent agent, CompiledLevel level, int timer, int marioState, boolean logEvents) {
+        return this.runSimulation(agent, MarioWorld.createGame(level, timer, marioState, this.killEvents), logEvents);
+    }
+
+    /**
+     * Play a recorded game up to a certain tick, then let an agent continue it from there as fast as possible.
+     * The summary only counts the events that happen after the branch point.
+     *
+     * @param agent     the agent that continues the game
+     * @param replay    the keyframed replay of the recorded game
+     * @param tick      the number of recorded ticks that are played before the agent takes over
+     * @param logEvents keep the game events and the agent actions in the returned summary
+     * @return a summary of the game played by the agent from the branch point
+     */
+    public MarioSummary runSimulation(MarioAgent agent, MarioReplayKeyframes replay, int tick, boolean logEvents) {
+        return this.runSimulation(agent, replay.seekWorld(tick), logEvents);
+    }
+
+    private MarioSummary runSimulation(MarioAgent agent, MarioWorld world, boolean logEvents) {
+        this.agent = agent;
+        this.world = world;
+
+        MarioTimer agentTimer = new MarioTimer(MarioGame.maxTime);
+        this.agent.initialize(new MarioForwardModel(this.world.clone()), agentTimer);
+
+        MarioEventCounter eventCounter = new MarioEventCounter();
+        byte[] actionTrace = this.traceActions ? new byte[256] : null;
+        int traceLength = 0;
+        ArrayList<MarioEvent> gameEvents = logEvents ? new ArrayList<MarioEvent>() : null;
+        ArrayList<MarioAgentEvent> agentEvents = logEvents ? new ArrayList<MarioAgentEvent>() : null;
+        while (this.world.gameStatus == GameStatus.RUNNING) {
+            boolean[] actions = this.playTick(eventCounter, gameEvents, agentEvents);
+            if (actionTrace != null) {
+                if (traceLength == actionTrace.length) {
+                    actionTrace = Arrays.copyOf(actionTrace, actionTrace.length * 2);
+                }
+                actionTrace[traceLength++] = MarioSummary.packActions(actions);
+            }
+        }
+        return new MarioSummary(this.world, eventCounter,
+                actionTrace != null ? Arrays.copyOf(actionTrace, traceLength) : null, gameEvents, agentEvents);
+    }
+
     private MarioResult gameLoop(String level, int timer, int marioState, boolean visual, int fps) {
         this.world = new MarioWorld(this.killEvents);
         this.world.visuals = visual;
@@ -229,9 +328,7 @@ public class MarioGame {
         if (visual) {
             this.world.initializeVisuals(this.render.getGraphicsConfiguration(), MarioGame.width);
         }
-        this.world.mario.isLarge = marioState > 0;
-        this.world.mario.isFire = marioState > 1;
-        this.world.update(new boolean[MarioActions.numberOfActions()]);
+        this.world.startGame(marioState);
         long currentTime = System.currentTimeMillis();
 
         //initialize graphics
@@ -248,25 +345,12 @@ public class MarioGame {
         MarioTimer agentTimer = new MarioTimer(MarioGame.maxTime);
         this.agent.initialize(new MarioForwardModel(this.world.clone()), agentTimer);
 
-        ArrayList<MarioEvent> gameEvents = new ArrayList<>();
-        ArrayList<MarioAgentEvent> agentEvents = new ArrayList<>();
+        MarioEventCounter eventCounter = new MarioEventCounter();
+        ArrayList<MarioEvent> gameEvents = this.logEvents ? new ArrayList<MarioEvent>() : null;
+        ArrayList<MarioAgentEvent> agentEvents = this.logEvents ? new ArrayList<MarioAgentEvent>() : null;
         while (this.world.gameStatus == GameStatus.RUNNING) {
             if (!this.pause) {
-                //get actions
-                agentTimer = new MarioTimer(MarioGame.maxTime);
-                boolean[] actions = this.agent.getActions(new MarioForwardModel(this.world.clone()), agentTimer);
-                if (MarioGame.verbose) {
-                    if (agentTimer.getRemainingTime() < 0 && Math.abs(agentTimer.getRemainingTime()) > MarioGame.graceTime) {
-                        System.out.println("The Agent is slowing down the game by: "
-                                + Math.abs(agentTimer.getRemainingTime()) + " msec.");
-                    }
-                }
-                // update world
-                this.world.update(actions);
-                gameEvents.addAll(this.world.lastFrameEvents);
-                agentEvents.add(new MarioAgentEvent(actions, this.world.mario.x,
-                        this.world.mario.y, (this.world.mario.isLarge ? 1 : 0) + (this.world.mario.isFire ? 1 : 0),
-                        this.world.mario.onGround, this.world.currentTick));
+                this.playTick(eventCounter, gameEvents, agentEvents);
             }
 
             //render world
@@ -297,7 +381,38 @@ public class MarioGame {
                     options[0]);
             window.dispose();
         }
-        return new MarioResult(this.world, gameEvents, agentEvents);
+        return new MarioResult(this.world, eventCounter, gameEvents, agentEvents);
+    }
+
+    /**
+     * Play one tick of the current game, the body of both the visual and the headless game loop
+     *
+     * @param eventCounter counts the events of the tick
+     * @param gameEvents   gets the events of the tick, null if they are not logged
+     * @param agentEvents  gets the actions of the tick and the state of mario after it, null if they are not logged
+     * @return the actions the agent sent
+     */
+    private boolean[] playTick(MarioEventCounter eventCounter, ArrayList<MarioEvent> gameEvents,
+                               ArrayList<MarioAgentEvent> agentEvents) {
+        //get actions
+        MarioTimer agentTimer = new MarioTimer(MarioGame.maxTime);
+        boolean[] actions = this.agent.getActions(new MarioForwardModel(this.world.clone()), agentTimer);
+        if (MarioGame.verbose) {
+            if (agentTimer.getRemainingTime() < 0 && Math.abs(agentTimer.getRemainingTime()) > MarioGame.graceTime) {
+                System.out.println("The Agent is slowing down the game by: "
+                        + Math.abs(agentTimer.getRemainingTime()) + " msec.");
+            }
+        }
+        // update world
+        this.world.update(actions);
+        eventCounter.addAll(this.world.lastFrameEvents);
+        if (gameEvents != null) {
+            gameEvents.addAll(this.world.lastFrameEvents);
+            agentEvents.add(new MarioAgentEvent(actions, this.world.mario.x,
+                    this.world.mario.y, (this.world.mario.isLarge ? 1 : 0) + (this.world.mario.isFire ? 1 : 0),
+                    this.world.mario.onGround, this.world.currentTick));
+        }
+        return actions;
     }
 
     public void buildWorld(String level, float scale) {
@@ -4,12 +4,19 @@ import engine.graphics.MarioImage;
 import engine.graphics.MarioTilemap;
 import engine.helper.Assets;
 import engine.helper.SpriteType;
+import engine.helper.StateHash;
 import engine.helper.TileFeature;
 
 import java.awt.*;
-import java.util.ArrayList;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
 
 public class MarioLevel {
+    private static final int SPAWNED_KEY = -1;
+    private static final int BLOCKING_FEATURES = TileFeature.BLOCK_ALL.getMask() | TileFeature.BLOCK_UPPER.getMask() |
+            TileFeature.BLOCK_LOWER.getMask();
 
     public int width = MarioGame.width;
     public int tileWidth = MarioGame.width / 16;
@@ -18,255 +25,84 @@ public class MarioLevel {
     public int totalCoins = 0;
     public int marioTileX, marioTileY, exitTileX, exitTileY;
 
-    private int[][] levelTiles;
-    private SpriteType[][] spriteTemplates;
-    private int[][] lastSpawnTime;
+    //tiles and sprite templates are stored column by column, the tile at x, y is at x * tileHeight + y
+    private byte[] levelTiles;
+    private byte[] spriteTemplates;
+    //only the cells that start with a sprite template have a spawn tick, spawnCells is sorted and shared
+    private int[] spawnCells;
+    private int[] lastSpawnTime;
+    //the tiles are shared between clones and only copied on the first write
+    private boolean ownsTiles;
+    //one bit per tile, maskWords longs per column, shared between clones until one of them changes a blocking tile
+    private int maskWords;
+    private long[] blockAllMasks;
+    private long[] blockUpperMasks;
+    private long[] blockLowerMasks;
+    private boolean ownsMasks;
+
+    private long stateHash;
     private MarioTilemap graphics;
     private MarioImage flag;
 
     public MarioLevel(String level, boolean visuals) {
-        if (level.trim().length() == 0) {
+        this(level.trim().length() == 0 ? null : CompiledLevel.get(level), visuals);
+    }
+
+    public MarioLevel(CompiledLevel level, boolean visuals) {
+        if (level == null) {
             this.tileWidth = 0;
             this.width = 0;
             this.tileHeight = 0;
             this.height = 0;
             return;
         }
-        String[] lines = level.split("\n");
-        this.tileWidth = lines[0].length();
+        this.tileWidth = level.tileWidth;
         this.width = this.tileWidth * 16;
-        this.tileHeight = lines.length;
+        this.tileHeight = level.tileHeight;
         this.height = this.tileHeight * 16;
+        this.totalCoins = level.totalCoins;
+        this.marioTileX = level.marioTileX;
+        this.marioTileY = level.marioTileY;
+        this.exitTileX = level.exitTileX;
+        this.exitTileY = level.exitTileY;
 
-        this.levelTiles = new int[lines[0].length()][lines.length];
-        this.spriteTemplates = new SpriteType[lines[0].length()][lines.length];
-        this.lastSpawnTime = new int[lines[0].length()][lines.length];
-        for (int y = 0; y < lines.length; y++) {
-            for (int x = 0; x < lines[y].length(); x++) {
-                this.levelTiles[x][y] = 0;
-                this.spriteTemplates[x][y] = SpriteType.NONE;
-                this.lastSpawnTime[x][y] = -40;
-            }
-        }
-
-        boolean marioLocInit = false;
-        boolean exitLocInit = false;
-        for (int y = 0; y < lines.length; y++) {
-            for (int x = 0; x < lines[y].length(); x++) {
-                Character c = lines[y].charAt(x);
-                switch (c) {
-                    case 'M':
-                        this.marioTileX = x;
-                        this.marioTileY = y;
-                        marioLocInit = true;
-                        break;
-                    case 'F':
-                        this.exitTileX = x;
-                        this.exitTileY = y;
-                        exitLocInit = true;
-                        break;
-                    case 'y':
-                        this.spriteTemplates[x][y] = SpriteType.SPIKY;
-                        break;
-                    case 'Y':
-                        this.spriteTemplates[x][y] = SpriteType.SPIKY_WINGED;
-                        break;
-                    case 'E':
-                    case 'g':
-                        this.spriteTemplates[x][y] = SpriteType.GOOMBA;
-                        break;
-                    case 'G':
-                        this.spriteTemplates[x][y] = SpriteType.GOOMBA_WINGED;
-                        break;
-                    case 'k':
-                        this.spriteTemplates[x][y] = SpriteType.GREEN_KOOPA;
-                        break;
-                    case 'K':
-                        this.spriteTemplates[x][y] = SpriteType.GREEN_KOOPA_WINGED;
-                        break;
-                    case 'r':
-                        this.spriteTemplates[x][y] = SpriteType.RED_KOOPA;
-                        break;
-                    case 'R':
-                        this.spriteTemplates[x][y] = SpriteType.RED_KOOPA_WINGED;
-                        break;
-                    case 'X':
-                        //floor
-                        this.levelTiles[x][y] = 1;
-                        break;
-                    case '#':
-                        //pyramidBlock
-                        this.levelTiles[x][y] = 2;
-                        break;
-                    case '%':
-                        //jump through block
-                        int tempIndex = 0;
-                        if (x > 0 && lines[y].charAt(x - 1) == '%') {
-                            tempIndex += 2;
-                        }
-                        if (x < this.levelTiles.length - 1 && lines[y].charAt(x + 1) == '%') {
-                            tempIndex += 1;
-                        }
-                        this.levelTiles[x][y] = 43 + tempIndex;
-                        break;
-                    case '|':
-                        //background for jump through block
-                        this.levelTiles[x][y] = 47;
-                        break;
-                    case '*':
-                        //bullet bill
-                        tempIndex = 0;
-                        if (y > 0 && lines[y - 1].charAt(x) == '*') {
-                            tempIndex += 1;
-                        }
-                        if (y > 1 && lines[y - 2].charAt(x) == '*') {
-                            tempIndex += 1;
-                        }
-                        this.levelTiles[x][y] = 3 + tempIndex;
-                        break;
-                    case 'B':
-                        //bullet bill head
-                        this.levelTiles[x][y] = 3;
-                        break;
-                    case 'b':
-                        //bullet bill neck and body
-                        tempIndex = 0;
-                        if (y > 1 && lines[y - 2].charAt(x) == 'B') {
-                            tempIndex += 1;
-                        }
-                        this.levelTiles[x][y] = 4 + tempIndex;
-                        break;
-                    case '?':
-                    case '@':
-                        //mushroom question block
-                        this.levelTiles[x][y] = 8;
-                        break;
-                    case 'Q':
-                    case '!':
-                        //coin question block
-                        this.totalCoins += 1;
-                        this.levelTiles[x][y] = 11;
-                        break;
-                    case '1':
-                        //invisible 1 up block
-                        this.levelTiles[x][y] = 48;
-                        break;
-                    case '2':
-                        //invisible coin block
-                        this.totalCoins += 1;
-                        this.levelTiles[x][y] = 49;
-                        break;
-                    case 'D':
-                        //used
-                        this.levelTiles[x][y] = 14;
-                        break;
-                    case 'S':
-                        //normal block
-                        this.levelTiles[x][y] = 6;
-                        break;
-                    case 'C':
-                        //coin block
-                        this.totalCoins += 1;
-                        this.levelTiles[x][y] = 7;
-                        break;
-                    case 'U':
-                        //mushroom block
-                        this.levelTiles[x][y] = 50;
-                        break;
-                    case 'L':
-                        //1up block
-                        this.levelTiles[x][y] = 51;
-                        break;
-                    case 'o':
-                        //coin
-                        this.totalCoins += 1;
-                        this.levelTiles[x][y] = 15;
-                        break;
-                    case 't':
-                        //empty Pipe
-                        tempIndex = 0;
-                        boolean singlePipe = false;
-                        if (x < lines[y].length() - 1 && Character.toLowerCase(lines[y].charAt(x + 1)) != 't' &&
-                                x > 0 && Character.toLowerCase(lines[y].charAt(x - 1)) != 't') {
-                            singlePipe = true;
-                        }
-                        if (x > 0 && (this.levelTiles[x - 1][y] == 18 || this.levelTiles[x - 1][y] == 20)) {
-                            tempIndex += 1;
-                        }
-                        if (y > 0 && Character.toLowerCase(lines[y - 1].charAt(x)) == 't') {
-                            if (singlePipe) {
-                                tempIndex += 1;
-                            } else {
-                                tempIndex += 2;
-                            }
-                        }
-                        if (singlePipe) {
-                            this.levelTiles[x][y] = 52 + tempIndex;
-                        } else {
-                            this.levelTiles[x][y] = 18 + tempIndex;
-                        }
-                        break;
-                    case 'T':
-                        //flower pipe
-                        tempIndex = 0;
-                        singlePipe = false;
-                        if (x < lines[y].length() - 1 && Character.toLowerCase(lines[y].charAt(x + 1)) != 't' &&
-                                x > 0 && Character.toLowerCase(lines[y].charAt(x - 1)) != 't') {
-                            singlePipe = true;
-                        }
-                        if (x > 0 && (this.levelTiles[x - 1][y] == 18 || this.levelTiles[x - 1][y] == 20)) {
-                            tempIndex += 1;
-                        }
-                        if (y > 0 && Character.toLowerCase(lines[y - 1].charAt(x)) == 't') {
-                            if (singlePipe) {
-                                tempIndex += 1;
-                            } else {
-                                tempIndex += 2;
-                            }
-                        }
-                        if (singlePipe) {
-                            this.levelTiles[x][y] = 52 + tempIndex;
-                        } else {
-                            if (tempIndex == 0) {
-                                this.spriteTemplates[x][y] = SpriteType.ENEMY_FLOWER;
-                            }
-                            this.levelTiles[x][y] = 18 + tempIndex;
-                        }
-                        break;
-                    case '<':
-                        //pipe top left
-                        this.levelTiles[x][y] = 18;
-                        break;
-                    case '>':
-                        //pipe top right
-                        this.levelTiles[x][y] = 19;
-                        break;
-                    case '[':
-                        //pipe body left
-                        this.levelTiles[x][y] = 20;
-                        break;
-                    case ']':
-                        //pipe body right
-                        this.levelTiles[x][y] = 21;
-                        break;
+        this.levelTiles = new byte[this.tileWidth * this.tileHeight];
+        this.spriteTemplates = new byte[this.tileWidth * this.tileHeight];
+        int templates = 0;
+        for (int x = 0; x < this.tileWidth; x++) {
+            for (int y = 0; y < this.tileHeight; y++) {
+                int cell = x * this.tileHeight + y;
+                this.levelTiles[cell] = (byte) level.getTile(x, y);
+                SpriteType template = level.getSpriteTemplate(x, y);
+                this.spriteTemplates[cell] = (byte) template.ordinal();
+                if (template != SpriteType.NONE) {
+                    templates++;
                 }
             }
         }
-        if (!marioLocInit) {
-            this.marioTileX = 0;
-            this.marioTileY = findFirstFloor(lines, this.marioTileX);
-        }
-        if (!exitLocInit) {
-            this.exitTileX = lines[0].length() - 1;
-            this.exitTileY = findFirstFloor(lines, this.exitTileX);
+        this.spawnCells = new int[templates];
+        for (int cell = 0, i = 0; i < templates; cell++) {
+            if (this.spriteTemplates[cell] != SpriteType.NONE.ordinal()) {
+                this.spawnCells[i++] = cell;
+            }
         }
-        for (int y = this.exitTileY; y > Math.max(1, this.exitTileY - 11); y--) {
-            this.levelTiles[this.exitTileX][y] = 40;
+        this.lastSpawnTime = new int[templates];
+        Arrays.fill(this.lastSpawnTime, -40);
+        this.ownsTiles = true;
+
+        this.maskWords = (this.tileHeight + 63) >> 6;
+        this.blockAllMasks = new long[this.tileWidth * this.maskWords];
+        this.blockUpperMasks = new long[this.tileWidth * this.maskWords];
+        this.blockLowerMasks = new long[this.tileWidth * this.maskWords];
+        this.ownsMasks = true;
+        for (int x = 0; x < this.tileWidth; x++) {
+            for (int y = 0; y < this.tileHeight; y++) {
+                this.updateMasks(x, y, this.getBlock(x, y));
+            }
         }
-        this.levelTiles[this.exitTileX][Math.max(1, this.exitTileY - 11)] = 39;
 
         if (visuals) {
-            this.graphics = new MarioTilemap(Assets.level, this.levelTiles);
+            this.graphics = new MarioTilemap(Assets.level, this);
             this.flag = new MarioImage(Assets.level, 41);
             this.flag.width = 16;
             this.flag.height = 16;
@@ -284,26 +120,76 @@ public class MarioLevel {
         level.marioTileY = this.marioTileY;
         level.exitTileX = this.exitTileX;
         level.exitTileY = this.exitTileY;
-        level.levelTiles = new int[this.levelTiles.length][this.levelTiles[0].length];
-        level.lastSpawnTime = new int[this.levelTiles.length][this.levelTiles[0].length];
-        for (int x = 0; x < level.levelTiles.length; x++) {
-            for (int y = 0; y < level.levelTiles[x].length; y++) {
-                level.levelTiles[x][y] = this.levelTiles[x][y];
-                level.lastSpawnTime[x][y] = this.lastSpawnTime[x][y];
-            }
-        }
+        //both levels now point at the same tiles so neither of them may write in place
+        level.levelTiles = this.levelTiles;
+        level.ownsTiles = false;
+        this.ownsTiles = false;
+        level.spawnCells = this.spawnCells;
+        level.lastSpawnTime = this.lastSpawnTime.clone();
+        level.maskWords = this.maskWords;
+        level.blockAllMasks = this.blockAllMasks;
+        level.blockUpperMasks = this.blockUpperMasks;
+        level.blockLowerMasks = this.blockLowerMasks;
+        this.ownsMasks = false;
         level.spriteTemplates = this.spriteTemplates;
+        level.stateHash = this.stateHash;
         return level;
     }
 
-    public boolean isBlocking(int xTile, int yTile, float xa, float ya) {
-        int block = this.getBlock(xTile, yTile);
-        ArrayList<TileFeature> features = TileFeature.getTileType(block);
-        boolean blocking = features.contains(TileFeature.BLOCK_ALL);
-        blocking |= (ya < 0) && features.contains(TileFeature.BLOCK_UPPER);
-        blocking |= (ya > 0) && features.contains(TileFeature.BLOCK_LOWER);
+    /**
+     * Make this level share the tiles and spawn times of another level, like clone but reusing the arrays
+     * of this level. Both levels must have the same size.
+     *
+     * @param other the level to copy from
+     */
+    void copyFrom(MarioLevel other) {
+        this.width = other.width;
+        this.height = other.height;
+        this.totalCoins = other.totalCoins;
+        this.marioTileX = other.marioTileX;
+        this.marioTileY = other.marioTileY;
+        this.exitTileX = other.exitTileX;
+        this.exitTileY = other.exitTileY;
+        this.spriteTemplates = other.spriteTemplates;
+        this.stateHash = other.stateHash;
+        this.levelTiles = other.levelTiles;
+        this.ownsTiles = false;
+        other.ownsTiles = false;
+        this.spawnCells = other.spawnCells;
+        if (this.lastSpawnTime.length == other.lastSpawnTime.length) {
+            System.arraycopy(other.lastSpawnTime, 0, this.lastSpawnTime, 0, this.lastSpawnTime.length);
+        } else {
+            this.lastSpawnTime = other.lastSpawnTime.clone();
+        }
+        this.blockAllMasks = other.blockAllMasks;
+        this.blockUpperMasks = other.blockUpperMasks;
+        this.blockLowerMasks = other.blockLowerMasks;
+        this.ownsMasks = false;
+        other.ownsMasks = false;
+    }
 
-        return blocking;
+    public boolean isBlocking(int xTile, int yTile, float xa, float ya) {
+        if (xTile < 0) {
+            xTile = 0;
+        }
+        if (xTile > this.tileWidth - 1) {
+            xTile = this.tileWidth - 1;
+        }
+        if (yTile < 0 || yTile > this.tileHeight - 1) {
+            return false;
+        }
+        int word = xTile * this.maskWords + (yTile >> 6);
+        long bit = 1L << yTile;
+        if ((this.blockAllMasks[word] & bit) != 0) {
+            return true;
+        }
+        if (ya < 0) {
+            return (this.blockUpperMasks[word] & bit) != 0;
+        }
+        if (ya > 0) {
+            return (this.blockLowerMasks[word] & bit) != 0;
+        }
+        return false;
     }
 
     public int getBlock(int xTile, int yTile) {
@@ -316,14 +202,49 @@ public class MarioLevel {
         if (yTile < 0 || yTile > this.tileHeight - 1) {
             return 0;
         }
-        return this.levelTiles[xTile][yTile];
+        return this.levelTiles[xTile * this.tileHeight + yTile] & 0xFF;
     }
 
     public void setBlock(int xTile, int yTile, int index) {
         if (xTile < 0 || yTile < 0 || xTile > this.tileWidth - 1 || yTile > this.tileHeight - 1) {
             return;
         }
-        this.levelTiles[xTile][yTile] = index;
+        if (index < 0 || index > 255) {
+            throw new IllegalArgumentException("Tile index " + index + " does not fit in a byte");
+        }
+        int cell = xTile * this.tileHeight + yTile;
+        int old = this.levelTiles[cell] & 0xFF;
+        if (old == index) {
+            return;
+        }
+        if (!this.ownsTiles) {
+            this.levelTiles = this.levelTiles.clone();
+            this.ownsTiles = true;
+        }
+        this.stateHash ^= StateHash.tileKey(xTile, yTile, old) ^ StateHash.tileKey(xTile, yTile, index);
+        if (((TileFeature.getTileMask(old) ^ TileFeature.getTileMask(index)) & BLOCKING_FEATURES) != 0) {
+            if (!this.ownsMasks) {
+                this.blockAllMasks = this.blockAllMasks.clone();
+                this.blockUpperMasks = this.blockUpperMasks.clone();
+                this.blockLowerMasks = this.blockLowerMasks.clone();
+                this.ownsMasks = true;
+            }
+            this.updateMasks(xTile, yTile, index);
+        }
+        this.levelTiles[cell] = (byte) index;
+    }
+
+    private void updateMasks(int xTile, int yTile, int index) {
+        int word = xTile * this.maskWords + (yTile >> 6);
+        long bit = 1L << yTile;
+        int features = TileFeature.getTileMask(index);
+        this.blockAllMasks[word] = setBit(this.blockAllMasks[word], bit, (features & TileFeature.BLOCK_ALL.getMask()) != 0);
+        this.blockUpperMasks[word] = setBit(this.blockUpperMasks[word], bit, (features & TileFeature.BLOCK_UPPER.getMask()) != 0);
+        this.blockLowerMasks[word] = setBit(this.blockLowerMasks[word], bit, (features & TileFeature.BLOCK_LOWER.getMask()) != 0);
+    }
+
+    private static long setBit(long mask, long bit, boolean set) {
+        return set ? mask | bit : mask & ~bit;
     }
 
     public void setShiftIndex(int xTile, int yTile, int shift) {
@@ -337,50 +258,128 @@ public class MarioLevel {
         if (xTile < 0 || yTile < 0 || xTile > this.tileWidth - 1 || yTile > this.tileHeight - 1) {
             return SpriteType.NONE;
         }
-        return this.spriteTemplates[xTile][yTile];
+        return CompiledLevel.SPRITE_TYPES[this.spriteTemplates[xTile * this.tileHeight + yTile]];
     }
 
+    /**
+     * Get the last tick the sprite template at a tile was in view
+     *
+     * @param xTile the x tile of the template
+     * @param yTile the y tile of the template
+     * @return the tick, -40 if the template has not been in view or there is no template at the tile
+     */
     public int getLastSpawnTick(int xTile, int yTile) {
         if (xTile < 0 || yTile < 0 || xTile > this.tileWidth - 1 || yTile > this.tileHeight - 1) {
             return 0;
         }
-        return this.lastSpawnTime[xTile][yTile];
+        int slot = Arrays.binarySearch(this.spawnCells, xTile * this.tileHeight + yTile);
+        return slot < 0 ? -40 : this.lastSpawnTime[slot];
     }
 
+    /**
+     * Set the last tick the sprite template at a tile was in view, tiles that did not start with a template
+     * are ignored
+     *
+     * @param xTile the x tile of the template
+     * @param yTile the y tile of the template
+     * @param tick  the current tick
+     */
     public void setLastSpawnTick(int xTile, int yTile, int tick) {
         if (xTile < 0 || yTile < 0 || xTile > this.tileWidth - 1 || yTile > this.tileHeight - 1) {
             return;
         }
-        this.lastSpawnTime[xTile][yTile] = tick;
-    }
-
-    void removeSpriteTemplate(int xTile, int yTile) {
-        this.spriteTemplates[xTile][yTile] = SpriteType.NONE;
+        int slot = Arrays.binarySearch(this.spawnCells, xTile * this.tileHeight + yTile);
+        if (slot < 0 || this.lastSpawnTime[slot] == tick) {
+            return;
+        }
+        //only whether a template has spawned matters to the game, not when
+        if ((this.lastSpawnTime[slot] == -40) != (tick == -40)) {
+            this.stateHash ^= StateHash.tileKey(xTile, yTile, SPAWNED_KEY);
+        }
+        this.lastSpawnTime[slot] = tick;
     }
 
-    public String getSpriteCode(int xTile, int yTile) {
-        return xTile + "_" + yTile + "_" + this.getSpriteType(xTile, yTile).getValue();
+    /**
+     * Get a hash of everything in the level that changed since it was loaded, it is updated on every change
+     *
+     * @return 0 for an unchanged level, the same value for levels with the same changes
+     */
+    public long getStateHash() {
+        return this.stateHash;
     }
 
-    private boolean isSolid(char c) {
-        return c == 'X' || c == '#' || c == '@' || c == '!' || c == 'B' || c == 'C' ||
-                c == 'Q' || c == '<' || c == '>' || c == '[' || c == ']' || c == '?' ||
-                c == 'S' || c == 'U' || c == 'D' || c == '%' || c == 't' || c == 'T';
+    /**
+     * Write the tiles that differ from the level this one was loaded from and the spawn ticks of the sprite
+     * templates
+     *
+     * @param out   where the changes are written to
+     * @param level the level this one was loaded from
+     * @throws IOException if writing fails
+     */
+    void writeChanges(DataOutput out, CompiledLevel level) throws IOException {
+        int changed = 0;
+        for (int cell = 0; cell < this.levelTiles.length; cell++) {
+            if ((this.levelTiles[cell] & 0xFF) != level.getTile(cell / this.tileHeight, cell % this.tileHeight)) {
+                changed++;
+            }
+        }
+        MarioReplay.writeVarInt(out, changed);
+        //changed cells are written as the distance to the previous one
+        int previous = 0;
+        for (int cell = 0; cell < this.levelTiles.length; cell++) {
+            int tile = this.levelTiles[cell] & 0xFF;
+            if (tile != level.getTile(cell / this.tileHeight, cell % this.tileHeight)) {
+                MarioReplay.writeVarInt(out, cell - previous);
+                out.writeByte(tile);
+                previous = cell;
+            }
+        }
+        MarioReplay.writeVarInt(out, this.lastSpawnTime.length);
+        for (int slot = 0; slot < this.lastSpawnTime.length; slot++) {
+            MarioReplay.writeVarInt(out, this.lastSpawnTime[slot] + 40);
+        }
     }
 
-    private int findFirstFloor(String[] lines, int x) {
-        boolean skipLines = true;
-        for (int i = lines.length - 1; i >= 0; i--) {
-            Character c = lines[i].charAt(x);
-            if (isSolid(c)) {
-                skipLines = false;
-                continue;
-            }
-            if (!skipLines && !isSolid(c)) {
-                return i;
+    /**
+     * Apply the changes written by writeChanges, the hash and the collision masks are updated like for any
+     * other change
+     *
+     * @param in where the changes are read from
+     * @throws IOException if reading fails or the changes do not fit this level
+     */
+    void readChanges(DataInput in) throws IOException {
+        int changed = MarioReplay.readVarInt(in);
+        int cell = 0;
+        for (int i = 0; i < changed; i++) {
+            cell += MarioReplay.readVarInt(in);
+            if (cell >= this.levelTiles.length) {
+                throw new IOException("Tile change at cell " + cell + " is outside the level");
             }
+            this.setBlock(cell / this.tileHeight, cell % this.tileHeight, in.readUnsignedByte());
         }
-        return -1;
+        if (MarioReplay.readVarInt(in) != this.lastSpawnTime.length) {
+            throw new IOException("The spawn ticks do not match the sprite templates of the level");
+        }
+        for (int slot = 0; slot < this.spawnCells.length; slot++) {
+            cell = this.spawnCells[slot];
+            this.setLastSpawnTick(cell / this.tileHeight, cell % this.tileHeight, MarioReplay.readVarInt(in) - 40);
+        }
+    }
+
+    void removeSpriteTemplate(int xTile, int yTile) {
+        this.spriteTemplates[xTile * this.tileHeight + yTile] = (byte) SpriteType.NONE.ordinal();
+    }
+
+    /**
+     * Get a unique code for the sprite template at a certain tile, sprites spawned from the template carry it
+     * as their initialCode
+     *
+     * @param xTile the x tile of the template
+     * @param yTile the y tile of the template
+     * @return the tile position and the sprite type packed in a single value
+     */
+    public long getSpriteCode(int xTile, int yTile) {
+        return ((long) xTile << 32) | ((yTile & 0xFFFFL) << 16) | (this.getSpriteType(xTile, yTile).getValue() & 0xFFFFL);
     }
 
     public void update(int cameraX, int cameraY) {
@@ -395,19 +394,20 @@ public class MarioLevel {
     }
 
     void renderFull(Graphics og, float scale) {
-        for (int xTile = 0; xTile < levelTiles.length; xTile++) {
-            for (int yTile = 0; yTile < levelTiles[0].length; yTile++) {
-                int index = levelTiles[xTile][yTile];
+        for (int xTile = 0; xTile < this.tileWidth; xTile++) {
+            for (int yTile = 0; yTile < this.tileHeight; yTile++) {
+                int index = this.getBlock(xTile, yTile);
                 if (index != 0) {
                     Image img = Assets.getImage(Assets.level, index % 8, index / 8, scale);
                     og.drawImage(img, (int) (xTile * 16 * scale), (int) (yTile * 16 * scale), null);
                 }
             }
         }
-        for (int xTile = 0; xTile < spriteTemplates.length; xTile++) {
-            for (int yTile = 0; yTile < spriteTemplates[0].length; yTile++) {
-                if (spriteTemplates[xTile][yTile] != SpriteType.NONE && spriteTemplates[xTile][yTile] != null) {
-                    int index = spriteTemplates[xTile][yTile].getStartIndex();
+        for (int xTile = 0; xTile < this.tileWidth; xTile++) {
+            for (int yTile = 0; yTile < this.tileHeight; yTile++) {
+                SpriteType template = this.getSpriteType(xTile, yTile);
+                if (template != SpriteType.NONE) {
+                    int index = template.getStartIndex();
                     Image img = Assets.getImage(Assets.enemies, index % 8, index / 8, scale);
                     og.drawImage(img, (int)(xTile * 16 * scale), (int)((yTile-1) * 16 * scale), null);
                 }
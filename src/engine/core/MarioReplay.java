@@ -0,0 +1,265 @@
+package engine.core;
+
+import engine.helper.GameStatus;
+import engine.helper.MarioActions;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A recorded game that can be played again without the agent. The engine is deterministic, so the level,
+ * the starting mario state, the timer and the actions of every tick are enough to get the same game back.
+ * The actions are stored as 5 bit values and written as runs, a run of up to 7 equal ticks takes one byte.
+ * Since version 2 the actions can be followed by the keyframes of a MarioReplayKeyframes, a replay written
+ * without them ends with an empty keyframe block. Games played with kill events can not be replayed.
+ */
+public class MarioReplay {
+    private static final int MAGIC = 0x4D52504C;
+    private static final int VERSION = 2;
+    //the first version that ends with a keyframe block
+    private static final int KEYFRAME_VERSION = 2;
+    private static final int ACTION_MASK = 0x1F;
+    //runs this long or shorter keep their length in the top 3 bits of the action byte
+    private static final int SHORT_RUN = 7;
+
+    private final long levelHash;
+    private final int timer;
+    private final int marioState;
+    private final byte[] actions;
+
+    /**
+     * Create a replay from the action trace of a game played with MarioGame.setTraceActions(true)
+     *
+     * @param level      the level the game was played on
+     * @param timer      the timer the game was played with
+     * @param marioState the initial state of mario in the game
+     * @param summary    the summary returned by runSimulation
+     */
+    public MarioReplay(CompiledLevel level, int timer, int marioState, MarioSummary summary) {
+        this(level.getHash(), timer, marioState, summary.getActionTrace());
+    }
+
+    private MarioReplay(long levelHash, int timer, int marioState, byte[] actions) {
+        if (actions == null) {
+            throw new IllegalArgumentException("The game was played without an action trace");
+        }
+        for (int i = 0; i < actions.length; i++) {
+            if ((actions[i] & ~ACTION_MASK) != 0) {
+                throw new IllegalArgumentException("Action " + actions[i] + " at tick " + i + " does not fit in 5 bits");
+            }
+        }
+        this.levelHash = levelHash;
+        this.timer = timer;
+        this.marioState = marioState;
+        this.actions = actions;
+    }
+
+    /**
+     * @return the hash of the level the game was played on, see CompiledLevel.getHash
+     */
+    public long getLevelHash() {
+        return this.levelHash;
+    }
+
+    /**
+     * @return the timer the game was played with
+     */
+    public int getTimer() {
+        return this.timer;
+    }
+
+    /**
+     * @return the initial state of mario, 0 small mario, 1 large mario, and 2 fire mario
+     */
+    public int getMarioState() {
+        return this.marioState;
+    }
+
+    /**
+     * @return the number of ticks the agent played
+     */
+    public int getTicks() {
+        return this.actions.length;
+    }
+
+    /**
+     * Get the actions the agent sent at a certain tick
+     *
+     * @param tick the tick, between 0 and getTicks() - 1
+     * @param ret  an array of MarioActions.numberOfActions() that is filled with the actions
+     * @return ret
+     */
+    public boolean[] getActions(int tick, boolean[] ret) {
+        int packed = this.actions[tick];
+        for (int i = 0; i < ret.length; i++) {
+            ret[i] = (packed & (1 << i)) != 0;
+        }
+        return ret;
+    }
+
+    /**
+     * Play the recorded game again on the level it was recorded on
+     *
+     * @param level the level the game was played on
+     * @return the summary of the replayed game, the same as the summary of the recorded game
+     */
+    public MarioSummary play(CompiledLevel level) {
+        MarioWorld world = this.createWorld(level);
+        boolean[] actions = new boolean[MarioActions.numberOfActions()];
+        MarioEventCounter eventCounter = new MarioEventCounter();
+        int tick = 0;
+        while (world.gameStatus == GameStatus.RUNNING && tick < this.actions.length) {
+            world.update(this.getActions(tick, actions));
+            eventCounter.addAll(world.lastFrameEvents);
+            tick++;
+        }
+        return new MarioSummary(world, eventCounter, Arrays.copyOf(this.actions, tick), null, null);
+    }
+
+    /**
+     * Create the world of the recorded game as it was before the first agent action
+     *
+     * @param level the level the game was played on
+     * @return a new headless world
+     */
+    MarioWorld createWorld(CompiledLevel level) {
+        if (level.getHash() != this.levelHash) {
+            throw new IllegalArgumentException("The replay was recorded on a different level");
+        }
+        return MarioWorld.createGame(level, this.timer, this.marioState, null);
+    }
+
+    /**
+     * Write the replay in its binary form
+     *
+     * @param out where the replay is written to
+     * @throws IOException if writing fails
+     */
+    public void write(DataOutput out) throws IOException {
+        this.write(out, new byte[0]);
+    }
+
+    /**
+     * Write the replay followed by a keyframe block
+     *
+     * @param out       where the replay is written to
+     * @param keyframes the keyframes in the form MarioReplayKeyframes.read takes them, empty for none
+     * @throws IOException if writing fails
+     */
+    void write(DataOutput out, byte[] keyframes) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeLong(this.levelHash);
+        out.writeInt(this.timer);
+        out.writeByte(this.marioState);
+        writeVarInt(out, this.actions.length);
+        int start = 0;
+        while (start < this.actions.length) {
+            int end = start + 1;
+            while (end < this.actions.length && this.actions[end] == this.actions[start]) {
+                end++;
+            }
+            int length = end - start;
+            if (length <= SHORT_RUN) {
+                out.writeByte(this.actions[start] | (length << 5));
+            } else {
+                out.writeByte(this.actions[start]);
+                writeVarInt(out, length);
+            }
+            start = end;
+        }
+        writeVarInt(out, keyframes.length);
+        out.write(keyframes);
+    }
+
+    /**
+     * Read a replay written by write()
+     *
+     * @param in where the replay is read from
+     * @return the replay
+     * @throws IOException if reading fails or the data is not a replay
+     */
+    public static MarioReplay read(DataInput in) throws IOException {
+        return read(in, false);
+    }
+
+    /**
+     * Read a replay written by write() up to its keyframe block
+     *
+     * @param in        where the replay is read from
+     * @param keyframes leave the keyframe block in the input for MarioReplayKeyframes.read instead of skipping it
+     * @return the replay
+     * @throws IOException if reading fails, the data is not a replay or keyframes are asked for from a replay
+     *                     written before they were supported
+     */
+    static MarioReplay read(DataInput in, boolean keyframes) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a mario replay");
+        }
+        int version = in.readUnsignedByte();
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Unsupported mario replay version " + version);
+        }
+        if (keyframes && version < KEYFRAME_VERSION) {
+            throw new IOException("The mario replay was written without keyframes");
+        }
+        long levelHash = in.readLong();
+        int timer = in.readInt();
+        int marioState = in.readUnsignedByte();
+        byte[] actions = new byte[readVarInt(in)];
+        int tick = 0;
+        while (tick < actions.length) {
+            int run = in.readUnsignedByte();
+            int length = run >>> 5;
+            if (length == 0) {
+                length = readVarInt(in);
+            }
+            if (length == 0 || length > actions.length - tick) {
+                throw new IOException("Mario replay has a run of " + length + " ticks at tick " + tick);
+            }
+            Arrays.fill(actions, tick, tick + length, (byte) (run & ACTION_MASK));
+            tick += length;
+        }
+        if (version >= KEYFRAME_VERSION && !keyframes) {
+            skipFully(in, readVarInt(in));
+        }
+        return new MarioReplay(levelHash, timer, marioState, actions);
+    }
+
+    private static void skipFully(DataInput in, int length) throws IOException {
+        while (length > 0) {
+            int skipped = in.skipBytes(length);
+            if (skipped <= 0) {
+                //skipBytes may stop early without being at the end, readByte tells the two apart
+                in.readByte();
+                skipped = 1;
+            }
+            length -= skipped;
+        }
+    }
+
+    static void writeVarInt(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    static int readVarInt(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                if (value < 0) {
+                    throw new IOException("Negative length in mario replay");
+                }
+                return value;
+            }
+        }
+        throw new IOException("Length in mario replay is too long");
+    }
+}
@@ -0,0 +1,156 @@
+package engine.core;
+
+import engine.helper.GameStatus;
+import engine.helper.MarioActions;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * A replay with a copy of the world kept every few ticks, so any tick of the game can be reached by copying
+ * the closest keyframe before it and playing the few actions after it. The keyframes are world clones, they
+ * share the level tiles with the game they were taken from, which copies the whole tile array the first time it
+ * changes a tile, so a keyframe costs its sprites and at most one tile array.
+ * Keyframes are written after the actions of the replay, each one as the world state, the tiles that differ
+ * from the level and a record per sprite, so reading them does not play the game again.
+ */
+public class MarioReplayKeyframes {
+    private final MarioReplay replay;
+    private final CompiledLevel level;
+    private final int interval;
+    //keyframe i is the world after i * interval ticks of the replay
+    private final ArrayList<MarioWorld> keyframes;
+
+    /**
+     * Play a replay once and keep a keyframe every interval ticks
+     *
+     * @param replay   the replay to index
+     * @param level    the level the replay was recorded on
+     * @param interval the number of ticks between two keyframes, seeking plays at most interval - 1 ticks
+     */
+    public MarioReplayKeyframes(MarioReplay replay, CompiledLevel level, int interval) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("The keyframe interval must be positive");
+        }
+        this.replay = replay;
+        this.level = level;
+        this.interval = interval;
+        this.keyframes = new ArrayList<>();
+
+        MarioWorld world = replay.createWorld(level);
+        boolean[] actions = new boolean[MarioActions.numberOfActions()];
+        this.keyframes.add(world.clone());
+        for (int tick = 0; tick < replay.getTicks() && world.gameStatus == GameStatus.RUNNING; tick++) {
+            world.update(replay.getActions(tick, actions));
+            if ((tick + 1) % interval == 0) {
+                this.keyframes.add(world.clone());
+            }
+        }
+    }
+
+    private MarioReplayKeyframes(MarioReplay replay, CompiledLevel level, int interval, ArrayList<MarioWorld> keyframes) {
+        this.replay = replay;
+        this.level = level;
+        this.interval = interval;
+        this.keyframes = keyframes;
+    }
+
+    /**
+     * @return the replay the keyframes were built from
+     */
+    public MarioReplay getReplay() {
+        return this.replay;
+    }
+
+    /**
+     * @return the number of ticks between two keyframes
+     */
+    public int getInterval() {
+        return this.interval;
+    }
+
+    /**
+     * @return the number of keyframes, the first one is the start of the game
+     */
+    public int getKeyframeCount() {
+        return this.keyframes.size();
+    }
+
+    /**
+     * Get the game as it was after a certain number of replayed ticks
+     *
+     * @param tick the number of replayed ticks, between 0 and getReplay().getTicks()
+     * @return a forward model of the game at that tick that can be changed without changing the keyframes
+     */
+    public MarioForwardModel seek(int tick) {
+        return new MarioForwardModel(this.seekWorld(tick));
+    }
+
+    MarioWorld seekWorld(int tick) {
+        if (tick < 0 || tick > this.replay.getTicks()) {
+            throw new IllegalArgumentException("Tick " + tick + " is outside the replay");
+        }
+        int keyframe = Math.min(tick / this.interval, this.keyframes.size() - 1);
+        MarioWorld world = this.keyframes.get(keyframe).clone();
+        boolean[] actions = new boolean[MarioActions.numberOfActions()];
+        for (int t = keyframe * this.interval; t < tick && world.gameStatus == GameStatus.RUNNING; t++) {
+            world.update(this.replay.getActions(t, actions));
+        }
+        return world;
+    }
+
+    /**
+     * Write the replay followed by its keyframes
+     *
+     * @param out where the replay is written to
+     * @throws IOException if writing fails
+     */
+    public void write(DataOutput out) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream block = new DataOutputStream(bytes);
+        MarioReplay.writeVarInt(block, this.interval);
+        MarioReplay.writeVarInt(block, this.keyframes.size());
+        for (MarioWorld keyframe : this.keyframes) {
+            keyframe.writeState(block, this.level);
+        }
+        block.flush();
+        this.replay.write(out, bytes.toByteArray());
+    }
+
+    /**
+     * Read a replay written by write() together with its keyframes
+     *
+     * @param in    where the replay is read from
+     * @param level the level the replay was recorded on
+     * @return the replay with the keyframes it was written with
+     * @throws IOException if reading fails, the data is not a replay or it was written without keyframes
+     */
+    public static MarioReplayKeyframes read(DataInput in, CompiledLevel level) throws IOException {
+        MarioReplay replay = MarioReplay.read(in, true);
+        if (level.getHash() != replay.getLevelHash()) {
+            throw new IllegalArgumentException("The replay was recorded on a different level");
+        }
+        byte[] block = new byte[MarioReplay.readVarInt(in)];
+        in.readFully(block);
+        if (block.length == 0) {
+            throw new IOException("The mario replay was written without keyframes");
+        }
+        DataInputStream keyframeIn = new DataInputStream(new ByteArrayInputStream(block));
+        int interval = MarioReplay.readVarInt(keyframeIn);
+        int count = MarioReplay.readVarInt(keyframeIn);
+        if (interval <= 0 || count == 0 || count - 1 > replay.getTicks() / interval) {
+            throw new IOException("Mario replay has " + count + " keyframes every " + interval + " ticks");
+        }
+        ArrayList<MarioWorld> keyframes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            keyframes.add(MarioWorld.readState(keyframeIn, level));
+        }
+        return new MarioReplayKeyframes(replay, level, interval, keyframes);
+    }
+}
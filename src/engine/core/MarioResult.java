@@ -10,6 +10,7 @@ public class MarioResult {
     private MarioWorld world;
     private ArrayList<MarioEvent> gameEvents;
     private ArrayList<MarioAgentEvent> agentEvents;
+    private MarioEventCounter eventCounter;
 
     /**
      * Create a mario result object
@@ -18,7 +19,23 @@ public class MarioResult {
      * @param gameEvents   the events that happens in the playthrough of the game
      */
     public MarioResult(MarioWorld world, ArrayList<MarioEvent> gameEvents, ArrayList<MarioAgentEvent> agentEvents) {
+        this(world, new MarioEventCounter(), gameEvents, agentEvents);
+        if (gameEvents != null) {
+            this.eventCounter.addAll(gameEvents);
+        }
+    }
+
+    /**
+     * Create a mario result object from events that were already counted while the game was played
+     *
+     * @param world        the current level world that is being used. This class uses the world object to get cleaner statistics.
+     * @param eventCounter the counts of all the events that happened in the game
+     * @param gameEvents   the events that happens in the playthrough of the game, null if they were not kept
+     * @param agentEvents  the actions the agent took during the game, null if they were not kept
+     */
+    public MarioResult(MarioWorld world, MarioEventCounter eventCounter, ArrayList<MarioEvent> gameEvents, ArrayList<MarioAgentEvent> agentEvents) {
         this.world = world;
+        this.eventCounter = eventCounter;
         this.gameEvents = gameEvents;
         this.agentEvents = agentEvents;
     }
@@ -69,7 +86,7 @@ public class MarioResult {
     /**
      * Get all the game events that happen in the game
      *
-     * @return an arrayList of all possible events that happened in a mario game
+     * @return an arrayList of all possible events that happened in a mario game, null if events were not kept
      */
     public ArrayList<MarioEvent> getGameEvents() {
         return this.gameEvents;
@@ -78,26 +95,29 @@ public class MarioResult {
     /**
      * Get all the actions that the agent has been taking during the game
      *
-     * @return an arraylist that contains all the actions the agent has taken during game play
+     * @return an arraylist that contains all the actions the agent has taken during game play, null if events were not kept
      */
     public ArrayList<MarioAgentEvent> getAgentEvents() {
         return this.agentEvents;
     }
 
+    /**
+     * Get the counts of all the game events, the statistics below are read from it
+     *
+     * @return the counts of the events that happened in the game
+     */
+    public MarioEventCounter getEventCounter() {
+        return this.eventCounter;
+    }
+
     /**
      * get the number of enemies killed in the game
      *
      * @return number of enemies killed in the game
      */
     public int getKillsTotal() {
-        int kills = 0;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.STOMP_KILL.getValue() || e.getEventType() == EventType.FIRE_KILL.getValue() ||
-                    e.getEventType() == EventType.FALL_KILL.getValue() || e.getEventType() == EventType.SHELL_KILL.getValue()) {
-                kills += 1;
-            }
-        }
-        return kills;
+        return this.eventCounter.getCount(EventType.STOMP_KILL) + this.eventCounter.getCount(EventType.FIRE_KILL) +
+                this.eventCounter.getCount(EventType.FALL_KILL) + this.eventCounter.getCount(EventType.SHELL_KILL);
     }
 
     /**
@@ -106,13 +126,7 @@ public class MarioResult {
      * @return number of enemies killed by fireballs
      */
     public int getKillsByFire() {
-        int kills = 0;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.FIRE_KILL.getValue()) {
-                kills += 1;
-            }
-        }
-        return kills;
+        return this.eventCounter.getCount(EventType.FIRE_KILL);
     }
 
     /**
@@ -121,13 +135,7 @@ public class MarioResult {
      * @return number of enemies killed by stomping
      */
     public int getKillsByStomp() {
-        int kills = 0;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.STOMP_KILL.getValue()) {
-                kills += 1;
-            }
-        }
-        return kills;
+        return this.eventCounter.getCount(EventType.STOMP_KILL);
     }
 
     /**
@@ -136,13 +144,7 @@ public class MarioResult {
      * @return number of enemies killed by a koopa shell
      */
     public int getKillsByShell() {
-        int kills = 0;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.SHELL_KILL.getValue()) {
-                kills += 1;
-            }
-        }
-        return kills;
+        return this.eventCounter.getCount(EventType.SHELL_KILL);
     }
 
     /**
@@ -152,15 +154,9 @@ public class MarioResult {
      * @return number of a certain type of enemy that has been killed by Mario
      */
     public int getMarioNumKills(int enemyType) {
-        int kills = 0;
-        for (MarioEvent e : this.gameEvents) {
-            if ((e.getEventType() == EventType.SHELL_KILL.getValue()
-                    || e.getEventType() == EventType.FIRE_KILL.getValue()
-                    || e.getEventType() == EventType.STOMP_KILL.getValue()) && e.getEventParam() == enemyType) {
-                kills += 1;
-            }
-        }
-        return kills;
+        return this.eventCounter.getCount(EventType.SHELL_KILL, enemyType) +
+                this.eventCounter.getCount(EventType.FIRE_KILL, enemyType) +
+                this.eventCounter.getCount(EventType.STOMP_KILL, enemyType);
     }
 
     /**
@@ -169,13 +165,7 @@ public class MarioResult {
      * @return number of times mario got hurt
      */
     public int getMarioNumHurts() {
-        int hurt = 0;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.HURT.getValue()) {
-                hurt += 1;
-            }
-        }
-        return hurt;
+        return this.eventCounter.getCount(EventType.HURT);
     }
 
     /**
@@ -184,13 +174,7 @@ public class MarioResult {
      * @return number of question mark block mario hit
      */
     public int getNumBumpQuestionBlock() {
-        int bump = 0;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.BUMP.getValue() && e.getEventParam() == MarioForwardModel.OBS_QUESTION_BLOCK) {
-                bump += 1;
-            }
-        }
-        return bump;
+        return this.eventCounter.getCount(EventType.BUMP, MarioForwardModel.OBS_QUESTION_BLOCK);
     }
 
     /**
@@ -199,13 +183,7 @@ public class MarioResult {
      * @return number of brick block mario hit
      */
     public int getNumBumpBrick() {
-        int bump = 0;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.BUMP.getValue() && e.getEventParam() == MarioForwardModel.OBS_BRICK) {
-                bump += 1;
-            }
-        }
-        return bump;
+        return this.eventCounter.getCount(EventType.BUMP, MarioForwardModel.OBS_BRICK);
     }
 
     /**
@@ -214,13 +192,7 @@ public class MarioResult {
      * @return the number of enemies that fell from the game screen
      */
     public int getKillsByFall() {
-        int kills = 0;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.FALL_KILL.getValue()) {
-                kills += 1;
-            }
-        }
-        return kills;
+        return this.eventCounter.getCount(EventType.FALL_KILL);
     }
 
     /**
@@ -229,13 +201,7 @@ public class MarioResult {
      * @return the number of jumps performed by mario during the game
      */
     public int getNumJumps() {
-        int jumps = 0;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.JUMP.getValue()) {
-                jumps += 1;
-            }
-        }
-        return jumps;
+        return this.eventCounter.getCount(EventType.JUMP);
     }
 
     /**
@@ -244,19 +210,7 @@ public class MarioResult {
      * @return the maximum x distance traversed mario
      */
     public float getMaxXJump() {
-        float maxXJump = 0;
-        float startX = -100;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.JUMP.getValue()) {
-                startX = e.getMarioX();
-            }
-            if (e.getEventType() == EventType.LAND.getValue()) {
-                if (Math.abs(e.getMarioX() - startX) > maxXJump) {
-                    maxXJump = Math.abs(e.getMarioX() - startX);
-                }
-            }
-        }
-        return maxXJump;
+        return this.eventCounter.getMaxXJump();
     }
 
     /**
@@ -265,19 +219,7 @@ public class MarioResult {
      * @return the maximum amount of frames mario is being in the air
      */
     public int getMaxJumpAirTime() {
-        int maxAirJump = 0;
-        int startTime = -100;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.JUMP.getValue()) {
-                startTime = e.getTime();
-            }
-            if (e.getEventType() == EventType.LAND.getValue()) {
-                if (e.getTime() - startTime > maxAirJump) {
-                    maxAirJump = e.getTime() - startTime;
-                }
-            }
-        }
-        return maxAirJump;
+        return this.eventCounter.getMaxJumpAirTime();
     }
 
     /**
@@ -304,13 +246,7 @@ public class MarioResult {
      * @return the number of collected mushrooms by mario
      */
     public int getNumCollectedMushrooms() {
-        int collect = 0;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.COLLECT.getValue() && e.getEventParam() == SpriteType.MUSHROOM.getValue()) {
-                collect += 1;
-            }
-        }
-        return collect;
+        return this.eventCounter.getCount(EventType.COLLECT, SpriteType.MUSHROOM.getValue());
     }
 
     /**
@@ -319,13 +255,7 @@ public class MarioResult {
      * @return the number of collected fire flowers by mario
      */
     public int getNumCollectedFireflower() {
-        int collect = 0;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.COLLECT.getValue() && e.getEventParam() == SpriteType.FIRE_FLOWER.getValue()) {
-                collect += 1;
-            }
-        }
-        return collect;
+        return this.eventCounter.getCount(EventType.COLLECT, SpriteType.FIRE_FLOWER.getValue());
     }
 
     /**
@@ -334,13 +264,7 @@ public class MarioResult {
      * @return the number of collected coins by mario
      */
     public int getNumCollectedTileCoins() {
-        int collect = 0;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.COLLECT.getValue() && e.getEventParam() == MarioForwardModel.OBS_COIN) {
-                collect += 1;
-            }
-        }
-        return collect;
+        return this.eventCounter.getCount(EventType.COLLECT, MarioForwardModel.OBS_COIN);
     }
 
     /**
@@ -349,13 +273,6 @@ public class MarioResult {
      * @return the number of destroyed bricks by large or fire mario
      */
     public int getNumDestroyedBricks() {
-        int bricks = 0;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.BUMP.getValue() &&
-                    e.getEventParam() == MarioForwardModel.OBS_BRICK && e.getMarioState() > 0) {
-                bricks += 1;
-            }
-        }
-        return bricks;
+        return this.eventCounter.getDestroyedBricks();
     }
 }
@@ -0,0 +1,47 @@
+package engine.core;
+
+import engine.helper.GameStatus;
+import engine.sprites.Mario;
+
+/**
+ * The mutable state of a forward model at one point in time. Snapshots are taken with MarioForwardModel.snapshot
+ * and can be restored any number of times, passing an old snapshot back to snapshot() reuses its storage.
+ * The level tiles are shared with the model until one of them changes a tile, the first change copies the whole
+ * tile array.
+ */
+public class MarioSnapshot {
+    //world state
+    GameStatus gameStatus;
+    int pauseTimer;
+    int fireballsOnScreen;
+    int currentTimer;
+    int currentTick;
+    float cameraX;
+    float cameraY;
+    int coins;
+    int lives;
+    MarioLevel level;
+    SpriteList sprites = new SpriteList();
+    Mario mario;
+
+    //forward model stats
+    int fallKill;
+    int stompKill;
+    int fireKill;
+    int shellKill;
+    int mushrooms;
+    int flowers;
+    int breakBlock;
+
+    MarioSnapshot() {
+    }
+
+    /**
+     * Get the game tick the snapshot was taken at
+     *
+     * @return the number of ticks the world had been updated for
+     */
+    public int getTick() {
+        return this.currentTick;
+    }
+}
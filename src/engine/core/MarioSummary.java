@@ -0,0 +1,347 @@
+package engine.core;
+
+import engine.helper.EventType;
+import engine.helper.GameStatus;
+import engine.helper.SpriteType;
+
+import java.util.ArrayList;
+
+/**
+ * A slim, immutable result of a simulated game. Unlike MarioResult it copies what it needs out of the world
+ * and the event counts when the game ends, so keeping many of them around does not keep their worlds alive.
+ * The agent actions can be kept as a compact trace of one byte per tick instead of a list of events.
+ */
+public class MarioSummary {
+    private final GameStatus gameStatus;
+    private final float completionPercentage;
+    private final int remainingTime;
+    private final int marioMode;
+    private final int lives;
+    private final int coins;
+    private final int ticks;
+    private final int mushroomsCollected;
+    private final int flowersCollected;
+    private final int tileCoinsCollected;
+    private final int stompKills;
+    private final int fireKills;
+    private final int shellKills;
+    private final int fallKills;
+    private final int bricksDestroyed;
+    private final int numJumps;
+    private final float maxXJump;
+    private final int maxJumpAirTime;
+    private final int numBumpBrick;
+    private final int numBumpQuestionBlock;
+    private final int numHurts;
+    private final byte[] actionTrace;
+    private final ArrayList<MarioEvent> gameEvents;
+    private final ArrayList<MarioAgentEvent> agentEvents;
+
+    /**
+     * Create a summary of a finished game
+     *
+     * @param world       the world at the end of the game
+     * @param gameEvents  the events that happened in the game, null if they were not logged
+     * @param agentEvents the actions the agent took during the game, null if they were not logged
+     */
+    public MarioSummary(MarioWorld world, ArrayList<MarioEvent> gameEvents, ArrayList<MarioAgentEvent> agentEvents) {
+        this(world, countEvents(gameEvents), null, gameEvents, agentEvents);
+    }
+
+    /**
+     * Create a summary of a finished game from events that were counted while it was played
+     *
+     * @param world        the world at the end of the game
+     * @param eventCounter the counts of all the events that happened in the game
+     * @param actionTrace  the actions of every tick packed by packActions, null if they were not traced
+     * @param gameEvents   the events that happened in the game, null if they were not logged
+     * @param agentEvents  the actions the agent took during the game, null if they were not logged
+     */
+    public MarioSummary(MarioWorld world, MarioEventCounter eventCounter, byte[] actionTrace,
+                        ArrayList<MarioEvent> gameEvents, ArrayList<MarioAgentEvent> agentEvents) {
+        this.gameStatus = world.gameStatus;
+        this.completionPercentage = world.mario.x / (world.level.exitTileX * 16);
+        this.remainingTime = world.currentTimer;
+        int mode = 0;
+        if (world.mario.isLarge) {
+            mode = 1;
+        }
+        if (world.mario.isFire) {
+            mode = 2;
+        }
+        this.marioMode = mode;
+        this.lives = world.lives;
+        this.coins = world.coins;
+        this.ticks = world.currentTick;
+        this.mushroomsCollected = eventCounter.getCount(EventType.COLLECT, SpriteType.MUSHROOM.getValue());
+        this.flowersCollected = eventCounter.getCount(EventType.COLLECT, SpriteType.FIRE_FLOWER.getValue());
+        this.tileCoinsCollected = eventCounter.getCount(EventType.COLLECT, MarioForwardModel.OBS_COIN);
+        this.stompKills = eventCounter.getCount(EventType.STOMP_KILL);
+        this.fireKills = eventCounter.getCount(EventType.FIRE_KILL);
+        this.shellKills = eventCounter.getCount(EventType.SHELL_KILL);
+        this.fallKills = eventCounter.getCount(EventType.FALL_KILL);
+        this.bricksDestroyed = eventCounter.getDestroyedBricks();
+        this.numJumps = eventCounter.getCount(EventType.JUMP);
+        this.maxXJump = eventCounter.getMaxXJump();
+        this.maxJumpAirTime = eventCounter.getMaxJumpAirTime();
+        this.numBumpBrick = eventCounter.getCount(EventType.BUMP, MarioForwardModel.OBS_BRICK);
+        this.numBumpQuestionBlock = eventCounter.getCount(EventType.BUMP, MarioForwardModel.OBS_QUESTION_BLOCK);
+        this.numHurts = eventCounter.getCount(EventType.HURT);
+        this.actionTrace = actionTrace;
+        this.gameEvents = gameEvents;
+        this.agentEvents = agentEvents;
+    }
+
+    private static MarioEventCounter countEvents(ArrayList<MarioEvent> gameEvents) {
+        MarioEventCounter counter = new MarioEventCounter();
+        if (gameEvents != null) {
+            counter.addAll(gameEvents);
+        }
+        return counter;
+    }
+
+    /**
+     * Pack the actions of a single tick into one byte of the action trace
+     *
+     * @param actions the actions array sent to the world, indexed by MarioActions
+     * @return a byte with bit i set when action i is pressed
+     */
+    public static byte packActions(boolean[] actions) {
+        int packed = 0;
+        for (int i = 0; i < actions.length && i < 8; i++) {
+            if (actions[i]) {
+                packed |= 1 << i;
+            }
+        }
+        return (byte) packed;
+    }
+
+    /**
+     * Get the state of the game when it ended
+     *
+     * @return GameStatus the final state (WIN, LOSE, TIME_OUT)
+     */
+    public GameStatus getGameStatus() {
+        return this.gameStatus;
+    }
+
+    /**
+     * The percentage of distance traversed between mario and the goal
+     *
+     * @return value between 0 to 1 to indicate the percentage of distance traversed
+     */
+    public float getCompletionPercentage() {
+        return this.completionPercentage;
+    }
+
+    /**
+     * Get the remaining time before the game timesout
+     *
+     * @return the number of time ticks before timeout each frame removes 30 frames
+     */
+    public int getRemainingTime() {
+        return this.remainingTime;
+    }
+
+    /**
+     * Get the final mario mode
+     *
+     * @return the final mario mode (0-small, 1-large, 2-fire)
+     */
+    public int getMarioMode() {
+        return this.marioMode;
+    }
+
+    /**
+     * get the number 100 coins collected by mario and 1 ups found
+     *
+     * @return number of 100 coins collected by mario and 1 ups found
+     */
+    public int getCurrentLives() {
+        return this.lives;
+    }
+
+    /**
+     * get the number of coins that mario have by end of the game
+     *
+     * @return the number of coins that mario have by end of the game
+     */
+    public int getCurrentCoins() {
+        return this.coins;
+    }
+
+    /**
+     * get the number of game ticks that were simulated
+     *
+     * @return the number of game ticks that were simulated
+     */
+    public int getTicks() {
+        return this.ticks;
+    }
+
+    /**
+     * get the number of mushroom collected by mario
+     *
+     * @return the number of collected mushrooms by mario
+     */
+    public int getNumCollectedMushrooms() {
+        return this.mushroomsCollected;
+    }
+
+    /**
+     * get the number of fire flowers collected by mario
+     *
+     * @return the number of collected fire flowers by mario
+     */
+    public int getNumCollectedFireflower() {
+        return this.flowersCollected;
+    }
+
+    /**
+     * get the number of coins collected by mario
+     *
+     * @return the number of collected coins by mario
+     */
+    public int getNumCollectedTileCoins() {
+        return this.tileCoinsCollected;
+    }
+
+    /**
+     * get the number of enemies killed in the game
+     *
+     * @return number of enemies killed in the game
+     */
+    public int getKillsTotal() {
+        return this.stompKills + this.fireKills + this.shellKills + this.fallKills;
+    }
+
+    /**
+     * get the number of enemies killed by stomping
+     *
+     * @return number of enemies killed by stomping
+     */
+    public int getKillsByStomp() {
+        return this.stompKills;
+    }
+
+    /**
+     * get the number of enemies killed by fireballs
+     *
+     * @return number of enemies killed by fireballs
+     */
+    public int getKillsByFire() {
+        return this.fireKills;
+    }
+
+    /**
+     * get the number of enemies killed by a koopa shell
+     *
+     * @return number of enemies killed by a koopa shell
+     */
+    public int getKillsByShell() {
+        return this.shellKills;
+    }
+
+    /**
+     * get the number of enemies that fell from the game screen
+     *
+     * @return the number of enemies that fell from the game screen
+     */
+    public int getKillsByFall() {
+        return this.fallKills;
+    }
+
+    /**
+     * get the number of destroyed bricks by large or fire mario
+     *
+     * @return the number of destroyed bricks by large or fire mario
+     */
+    public int getNumDestroyedBricks() {
+        return this.bricksDestroyed;
+    }
+
+    /**
+     * get number of jumps performed by mario during the game
+     *
+     * @return the number of jumps performed by mario during the game
+     */
+    public int getNumJumps() {
+        return this.numJumps;
+    }
+
+    /**
+     * get the maximum x distance traversed by mario
+     *
+     * @return the maximum x distance traversed mario
+     */
+    public float getMaxXJump() {
+        return this.maxXJump;
+    }
+
+    /**
+     * get the maximum amount of frames mario is being in the air
+     *
+     * @return the maximum amount of frames mario is being in the air
+     */
+    public int getMaxJumpAirTime() {
+        return this.maxJumpAirTime;
+    }
+
+    /**
+     * Number of times mario hit brick block
+     *
+     * @return number of brick block mario hit
+     */
+    public int getNumBumpBrick() {
+        return this.numBumpBrick;
+    }
+
+    /**
+     * Number of times mario hit question mark block
+     *
+     * @return number of question mark block mario hit
+     */
+    public int getNumBumpQuestionBlock() {
+        return this.numBumpQuestionBlock;
+    }
+
+    /**
+     * Get number of times mario got hit by an enemy
+     *
+     * @return number of times mario got hurt
+     */
+    public int getMarioNumHurts() {
+        return this.numHurts;
+    }
+
+    /**
+     * Get the actions of every tick of the game, one byte per tick with bit i set when action i of
+     * MarioActions was pressed
+     *
+     * @return a copy of the action trace, null if the actions were not traced
+     */
+    public byte[] getActionTrace() {
+        if (this.actionTrace == null) {
+            return null;
+        }
+        return this.actionTrace.clone();
+    }
+
+    /**
+     * Get all the game events that happen in the game
+     *
+     * @return an arrayList of all the events that happened in the game, null if events were not logged
+     */
+    public ArrayList<MarioEvent> getGameEvents() {
+        return this.gameEvents;
+    }
+
+    /**
+     * Get all the actions that the agent has been taking during the game
+     *
+     * @return an arraylist of all the actions the agent has taken, null if events were not logged
+     */
+    public ArrayList<MarioAgentEvent> getAgentEvents() {
+        return this.agentEvents;
+    }
+}
@@ -8,7 +8,14 @@ import engine.helper.*;
 import engine.sprites.*;
 
 import java.awt.*;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
 
 public class MarioWorld {
     public GameStatus gameStatus;
@@ -26,30 +33,36 @@ public class MarioWorld {
     public ArrayList<MarioEvent> lastFrameEvents;
 
     private MarioEvent[] killEvents;
-    private ArrayList<MarioSprite> sprites;
+    private SpriteList sprites;
     private ArrayList<Shell> shellsToCheck;
     private ArrayList<Fireball> fireballsToCheck;
     private ArrayList<MarioSprite> addedSprites;
-    private ArrayList<MarioSprite> removedSprites;
+    private Set<MarioSprite> removedSprites;
+    private SpriteGrid spriteGrid;
+    private LongHashSet spawnedCodes;
+    //old sprites that copies of other sprites are written into
+    private SpritePool spritePool;
 
+    //graphics state, only created by initializeVisuals
     private ArrayList<MarioEffect> effects;
-
-    private MarioBackground[] backgrounds = new MarioBackground[2];
+    private MarioBackground[] backgrounds;
 
     public MarioWorld(MarioEvent[] killEvents) {
         this.pauseTimer = 0;
         this.gameStatus = GameStatus.RUNNING;
-        this.sprites = new ArrayList<>();
+        this.sprites = new SpriteList();
         this.shellsToCheck = new ArrayList<>();
         this.fireballsToCheck = new ArrayList<>();
         this.addedSprites = new ArrayList<>();
-        this.removedSprites = new ArrayList<>();
-        this.effects = new ArrayList<>();
+        this.removedSprites = Collections.newSetFromMap(new IdentityHashMap<MarioSprite, Boolean>());
         this.lastFrameEvents = new ArrayList<>();
         this.killEvents = killEvents;
+        this.spritePool = new SpritePool();
     }
 
     public void initializeVisuals(GraphicsConfiguration graphicsConfig, int backgroundWidth) {
+        this.effects = new ArrayList<>();
+        this.backgrounds = new MarioBackground[2];
         int[][] tempBackground = new int[][]{
                 new int[]{42},
                 new int[]{42},
@@ -84,8 +97,62 @@ public class MarioWorld {
     }
 
     public void initializeLevel(String level, int timer) {
+        this.initializeLevel(new MarioLevel(level, this.visuals), timer);
+    }
+
+    public void initializeLevel(CompiledLevel level, int timer) {
+        this.initializeLevel(new MarioLevel(level, this.visuals), timer);
+    }
+
+    /**
+     * Create a headless world at the start of a game. Every game of the framework starts like this, so replays
+     * and the vector environment get the same first tick as MarioGame.
+     *
+     * @param level      the level contents, see MarioGame.runGame
+     * @param timer      the number of seconds of the game
+     * @param marioState the initial state of mario, 0 small mario, 1 large mario, and 2 fire mario
+     * @param killEvents the events that end the game, null for none
+     * @return the world after its first tick
+     */
+    static MarioWorld createGame(String level, int timer, int marioState, MarioEvent[] killEvents) {
+        return createGame(new MarioLevel(level, false), timer, marioState, killEvents);
+    }
+
+    /**
+     * Create a headless world at the start of a game, like createGame with a level string
+     *
+     * @param level      the compiled level
+     * @param timer      the number of seconds of the game
+     * @param marioState the initial state of mario, 0 small mario, 1 large mario, and 2 fire mario
+     * @param killEvents the events that end the game, null for none
+     * @return the world after its first tick
+     */
+    static MarioWorld createGame(CompiledLevel level, int timer, int marioState, MarioEvent[] killEvents) {
+        return createGame(new MarioLevel(level, false), timer, marioState, killEvents);
+    }
+
+    private static MarioWorld createGame(MarioLevel level, int timer, int marioState, MarioEvent[] killEvents) {
+        MarioWorld world = new MarioWorld(killEvents);
+        world.visuals = false;
+        world.initializeLevel(level, 1000 * timer);
+        world.startGame(marioState);
+        return world;
+    }
+
+    /**
+     * Give mario his starting state and play the first tick without actions
+     *
+     * @param marioState the initial state of mario, 0 small mario, 1 large mario, and 2 fire mario
+     */
+    void startGame(int marioState) {
+        this.mario.isLarge = marioState > 0;
+        this.mario.isFire = marioState > 1;
+        this.update(new boolean[MarioActions.numberOfActions()]);
+    }
+
+    private void initializeLevel(MarioLevel level, int timer) {
         this.currentTimer = timer;
-        this.level = new MarioLevel(level, this.visuals);
+        this.level = level;
 
         this.mario = new Mario(this.visuals, this.level.marioTileX * 16, this.level.marioTileY * 16);
         this.mario.alive = true;
@@ -104,7 +171,19 @@ public class MarioWorld {
     }
 
     public MarioWorld clone() {
-        MarioWorld world = new MarioWorld(this.killEvents);
+        return this.cloneInto(new MarioWorld(this.killEvents));
+    }
+
+    /**
+     * Copy the state of this world into a world that is no longer used, reusing its lists, level and mario
+     *
+     * @param world a fresh world or one that was created by clone and is not used anymore
+     * @return the world holding the copied state
+     */
+    MarioWorld cloneInto(MarioWorld world) {
+        Mario oldMario = world.mario;
+        world.mario = null;
+        world.killEvents = this.killEvents;
         world.visuals = false;
         world.cameraX = this.cameraX;
         world.cameraY = this.cameraY;
@@ -113,17 +192,24 @@ public class MarioWorld {
         world.pauseTimer = this.pauseTimer;
         world.currentTimer = this.currentTimer;
         world.currentTick = this.currentTick;
-        world.level = this.level.clone();
-        for (MarioSprite sprite : this.sprites) {
-            MarioSprite cloneSprite = sprite.clone();
+        if (world.level != null && world.level.tileWidth == this.level.tileWidth
+                && world.level.tileHeight == this.level.tileHeight) {
+            world.level.copyFrom(this.level);
+        } else {
+            world.level = this.level.clone();
+        }
+        world.lastFrameEvents.clear();
+        world.spritePool.copyAll(this.sprites, world.sprites);
+        for (int i = 0; i < world.sprites.size(); i++) {
+            MarioSprite cloneSprite = world.sprites.get(i);
             cloneSprite.world = world;
             if (cloneSprite.type == SpriteType.MARIO) {
                 world.mario = (Mario) cloneSprite;
             }
-            world.sprites.add(cloneSprite);
         }
         if (world.mario == null) {
-            world.mario = (Mario) this.mario.clone();
+            //the old mario is not in the list either, so it is not used anymore
+            world.mario = this.mario.cloneInto(oldMario);
         }
         //stats
         world.coins = this.coins;
@@ -131,6 +217,201 @@ public class MarioWorld {
         return world;
     }
 
+    void saveSnapshot(MarioSnapshot snapshot) {
+        snapshot.gameStatus = this.gameStatus;
+        snapshot.pauseTimer = this.pauseTimer;
+        snapshot.fireballsOnScreen = this.fireballsOnScreen;
+        snapshot.currentTimer = this.currentTimer;
+        snapshot.currentTick = this.currentTick;
+        snapshot.cameraX = this.cameraX;
+        snapshot.cameraY = this.cameraY;
+        snapshot.coins = this.coins;
+        snapshot.lives = this.lives;
+        if (snapshot.level == null || snapshot.level.tileWidth != this.level.tileWidth
+                || snapshot.level.tileHeight != this.level.tileHeight) {
+            snapshot.level = this.level.clone();
+        } else {
+            snapshot.level.copyFrom(this.level);
+        }
+        //the old sprites of the snapshot are only referenced by it, so they are written over
+        this.spritePool.copyAll(this.sprites, snapshot.sprites);
+        Mario oldMario = snapshot.mario;
+        snapshot.mario = null;
+        for (int i = 0; i < snapshot.sprites.size(); i++) {
+            if (snapshot.sprites.get(i).type == SpriteType.MARIO) {
+                snapshot.mario = (Mario) snapshot.sprites.get(i);
+            }
+        }
+        if (snapshot.mario == null) {
+            snapshot.mario = this.mario.cloneInto(oldMario);
+        }
+    }
+
+    void restoreSnapshot(MarioSnapshot snapshot) {
+        this.gameStatus = snapshot.gameStatus;
+        this.pauseTimer = snapshot.pauseTimer;
+        this.fireballsOnScreen = snapshot.fireballsOnScreen;
+        this.currentTimer = snapshot.currentTimer;
+        this.currentTick = snapshot.currentTick;
+        this.cameraX = snapshot.cameraX;
+        this.cameraY = snapshot.cameraY;
+        this.coins = snapshot.coins;
+        this.lives = snapshot.lives;
+        this.level.copyFrom(snapshot.level);
+        //the snapshot keeps its own sprites so it can be restored again, the current ones are written over
+        this.spritePool.copyAll(snapshot.sprites, this.sprites);
+        Mario oldMario = this.mario;
+        this.mario = null;
+        for (int i = 0; i < this.sprites.size(); i++) {
+            MarioSprite cloneSprite = this.sprites.get(i);
+            cloneSprite.world = this;
+            if (cloneSprite.type == SpriteType.MARIO) {
+                this.mario = (Mario) cloneSprite;
+            }
+        }
+        if (this.mario == null) {
+            this.mario = snapshot.mario.cloneInto(oldMario);
+            this.mario.world = this;
+        }
+        this.lastFrameEvents.clear();
+    }
+
+    /**
+     * Write the state of this world that clone() keeps, the level is written as its changes to the level it
+     * was loaded from
+     *
+     * @param out   where the state is written to
+     * @param level the level this world was loaded from
+     * @throws IOException if writing fails
+     */
+    void writeState(DataOutput out, CompiledLevel level) throws IOException {
+        out.writeByte(this.gameStatus.ordinal());
+        out.writeInt(this.pauseTimer);
+        out.writeInt(this.fireballsOnScreen);
+        out.writeInt(this.currentTimer);
+        out.writeInt(this.currentTick);
+        out.writeFloat(this.cameraX);
+        out.writeFloat(this.cameraY);
+        out.writeInt(this.coins);
+        out.writeInt(this.lives);
+        this.level.writeChanges(out, level);
+        MarioReplay.writeVarInt(out, this.sprites.size());
+        boolean marioInSprites = false;
+        for (int i = 0; i < this.sprites.size(); i++) {
+            MarioSprite sprite = this.sprites.get(i);
+            out.writeByte(sprite.type.ordinal());
+            sprite.writeState(out);
+            marioInSprites |= sprite.type == SpriteType.MARIO;
+        }
+        //mario is only written on his own once he has been removed from the sprites
+        if (!marioInSprites) {
+            this.mario.writeState(out);
+        }
+    }
+
+    /**
+     * Read a world written by writeState
+     *
+     * @param in    where the state is read from
+     * @param level the level the world was loaded from
+     * @return a new headless world, the same as a clone of the written one
+     * @throws IOException if reading fails or the state does not fit the level
+     */
+    static MarioWorld readState(DataInput in, CompiledLevel level) throws IOException {
+        MarioWorld world = new MarioWorld(null);
+        world.visuals = false;
+        world.initializeLevel(level, 0);
+        world.sprites.clear();
+        world.mario = null;
+        int status = in.readUnsignedByte();
+        if (status >= GameStatus.values().length) {
+            throw new IOException("Unknown game status " + status);
+        }
+        world.gameStatus = GameStatus.values()[status];
+        world.pauseTimer = in.readInt();
+        world.fireballsOnScreen = in.readInt();
+        world.currentTimer = in.readInt();
+        world.currentTick = in.readInt();
+        world.cameraX = in.readFloat();
+        world.cameraY = in.readFloat();
+        world.coins = in.readInt();
+        world.lives = in.readInt();
+        world.level.readChanges(in);
+        int count = MarioReplay.readVarInt(in);
+        for (int i = 0; i < count; i++) {
+            int type = in.readUnsignedByte();
+            if (type >= CompiledLevel.SPRITE_TYPES.length) {
+                throw new IOException("Unknown sprite type " + type);
+            }
+            MarioSprite sprite = createSprite(CompiledLevel.SPRITE_TYPES[type]);
+            sprite.readState(in);
+            sprite.world = world;
+            if (sprite.type == SpriteType.MARIO) {
+                world.mario = (Mario) sprite;
+            }
+            world.sprites.add(sprite);
+        }
+        if (world.mario == null) {
+            world.mario = (Mario) createSprite(SpriteType.MARIO);
+            world.mario.readState(in);
+        }
+        return world;
+    }
+
+    //a sprite of the class that is used for a type, readState sets everything that matters
+    private static MarioSprite createSprite(SpriteType type) throws IOException {
+        switch (type) {
+            case MARIO:
+                return new Mario(false, 0, 0);
+            case FIREBALL:
+                return new Fireball(false, 0, 0, 1);
+            case GOOMBA:
+            case GOOMBA_WINGED:
+            case RED_KOOPA:
+            case RED_KOOPA_WINGED:
+            case GREEN_KOOPA:
+            case GREEN_KOOPA_WINGED:
+            case SPIKY:
+            case SPIKY_WINGED:
+                return new Enemy(false, 0, 0, 1, type);
+            case BULLET_BILL:
+                return new BulletBill(false, 0, 0, 1);
+            case ENEMY_FLOWER:
+                return new FlowerEnemy(false, 0, 0);
+            case MUSHROOM:
+                return new Mushroom(false, 0, 0);
+            case FIRE_FLOWER:
+                return new FireFlower(false, 0, 0);
+            case SHELL:
+                return new Shell(false, 0, 0, 0, MarioSprite.NO_CODE);
+            case LIFE_MUSHROOM:
+                return new LifeMushroom(false, 0, 0);
+            default:
+                throw new IOException("Sprites of type " + type + " can not be read");
+        }
+    }
+
+    /**
+     * Get a 64 bit hash of the game state. The level part is kept up to date on every tile change, the
+     * sprites are added when this is called. The time is left out so the same state reached on different
+     * ticks has the same hash.
+     *
+     * @return the same value for worlds that behave the same from now on, apart from the time left
+     */
+    public long getStateHash() {
+        long hash = this.level.getStateHash();
+        hash = StateHash.mix(hash, this.gameStatus.ordinal());
+        hash = StateHash.mix(hash, this.pauseTimer);
+        hash = StateHash.mix(hash, this.fireballsOnScreen);
+        hash = StateHash.mix(hash, this.cameraX);
+        hash = StateHash.mix(hash, this.coins);
+        hash = StateHash.mix(hash, this.lives);
+        for (MarioSprite sprite : this.sprites) {
+            hash = sprite.getStateHash(hash);
+        }
+        return hash;
+    }
+
     public void addEvent(EventType eventType, int eventParam) {
         int marioState = 0;
         if (this.mario.isLarge) {
@@ -143,6 +424,9 @@ public class MarioWorld {
     }
 
     public void addEffect(MarioEffect effect) {
+        if (this.effects == null) {
+            return;
+        }
         this.effects.add(effect);
     }
 
@@ -186,10 +470,14 @@ public class MarioWorld {
     }
 
     public int[][] getSceneObservation(float centerX, float centerY, int detail) {
-        int[][] ret = new int[MarioGame.tileWidth][MarioGame.tileHeight];
+        return this.getSceneObservation(centerX, centerY, detail, new int[MarioGame.tileWidth][MarioGame.tileHeight]);
+    }
+
+    public int[][] getSceneObservation(float centerX, float centerY, int detail, int[][] ret) {
         int centerXInMap = (int) centerX / 16;
         int centerYInMap = (int) centerY / 16;
 
+        int[] generalization = MarioForwardModel.getBlockGeneralizationTable(detail);
         for (int y = centerYInMap - MarioGame.tileHeight / 2, obsY = 0; y < centerYInMap + MarioGame.tileHeight / 2; y++, obsY++) {
             for (int x = centerXInMap - MarioGame.tileWidth / 2, obsX = 0; x < centerXInMap + MarioGame.tileWidth / 2; x++, obsX++) {
                 int currentX = x;
@@ -206,14 +494,17 @@ public class MarioWorld {
                 if (currentY > level.tileHeight - 1) {
                     currentY = level.tileHeight - 1;
                 }
-                ret[obsX][obsY] = MarioForwardModel.getBlockValueGeneralization(this.level.getBlock(currentX, currentY), detail);
+                ret[obsX][obsY] = generalization[this.level.getBlock(currentX, currentY)];
             }
         }
         return ret;
     }
 
     public int[][] getEnemiesObservation(float centerX, float centerY, int detail) {
-        int[][] ret = new int[MarioGame.tileWidth][MarioGame.tileHeight];
+        return this.getEnemiesObservation(centerX, centerY, detail, new int[MarioGame.tileWidth][MarioGame.tileHeight]);
+    }
+
+    public int[][] getEnemiesObservation(float centerX, float centerY, int detail, int[][] ret) {
         int centerXInMap = (int) centerX / 16;
         int centerYInMap = (int) centerY / 16;
 
@@ -221,28 +512,36 @@ public class MarioWorld {
             for (int h = 0; h < ret[0].length; h++)
                 ret[w][h] = 0;
 
-        for (MarioSprite sprite : sprites) {
+        int[] generalization = MarioForwardModel.getSpriteGeneralizationTable(detail);
+        for (int i = 0; i < this.sprites.size(); i++) {
+            MarioSprite sprite = this.sprites.get(i);
             if (sprite.type == SpriteType.MARIO)
                 continue;
-            if (sprite.getMapX() >= 0 &&
-                    sprite.getMapX() > centerXInMap - MarioGame.tileWidth / 2 &&
-                    sprite.getMapX() < centerXInMap + MarioGame.tileWidth / 2 &&
-                    sprite.getMapY() >= 0 &&
-                    sprite.getMapY() > centerYInMap - MarioGame.tileHeight / 2 &&
-                    sprite.getMapY() < centerYInMap + MarioGame.tileHeight / 2) {
-                int obsX = sprite.getMapX() - centerXInMap + MarioGame.tileWidth / 2;
-                int obsY = sprite.getMapY() - centerYInMap + MarioGame.tileHeight / 2;
-                ret[obsX][obsY] = MarioForwardModel.getSpriteTypeGeneralization(sprite.type, detail);
+            int mapX = sprite.getMapX();
+            int mapY = sprite.getMapY();
+            if (mapX >= 0 &&
+                    mapX > centerXInMap - MarioGame.tileWidth / 2 &&
+                    mapX < centerXInMap + MarioGame.tileWidth / 2 &&
+                    mapY >= 0 &&
+                    mapY > centerYInMap - MarioGame.tileHeight / 2 &&
+                    mapY < centerYInMap + MarioGame.tileHeight / 2) {
+                int obsX = mapX - centerXInMap + MarioGame.tileWidth / 2;
+                int obsY = mapY - centerYInMap + MarioGame.tileHeight / 2;
+                ret[obsX][obsY] = generalization[sprite.type.ordinal()];
             }
         }
         return ret;
     }
 
     public int[][] getMergedObservation(float centerX, float centerY, int sceneDetail, int enemiesDetail) {
-        int[][] ret = new int[MarioGame.tileWidth][MarioGame.tileHeight];
+        return this.getMergedObservation(centerX, centerY, sceneDetail, enemiesDetail, new int[MarioGame.tileWidth][MarioGame.tileHeight]);
+    }
+
+    public int[][] getMergedObservation(float centerX, float centerY, int sceneDetail, int enemiesDetail, int[][] ret) {
         int centerXInMap = (int) centerX / 16;
         int centerYInMap = (int) centerY / 16;
 
+        int[] sceneGeneralization = MarioForwardModel.getBlockGeneralizationTable(sceneDetail);
         for (int y = centerYInMap - MarioGame.tileHeight / 2, obsY = 0; y < centerYInMap + MarioGame.tileHeight / 2; y++, obsY++) {
             for (int x = centerXInMap - MarioGame.tileWidth / 2, obsX = 0; x < centerXInMap + MarioGame.tileWidth / 2; x++, obsX++) {
                 int currentX = x;
@@ -259,22 +558,26 @@ public class MarioWorld {
                 if (currentY > level.tileHeight - 1) {
                     currentY = level.tileHeight - 1;
                 }
-                ret[obsX][obsY] = MarioForwardModel.getBlockValueGeneralization(this.level.getBlock(x, y), sceneDetail);
+                ret[obsX][obsY] = sceneGeneralization[this.level.getBlock(x, y)];
             }
         }
 
-        for (MarioSprite sprite : sprites) {
+        int[] enemiesGeneralization = MarioForwardModel.getSpriteGeneralizationTable(enemiesDetail);
+        for (int i = 0; i < this.sprites.size(); i++) {
+            MarioSprite sprite = this.sprites.get(i);
             if (sprite.type == SpriteType.MARIO)
                 continue;
-            if (sprite.getMapX() >= 0 &&
-                    sprite.getMapX() > centerXInMap - MarioGame.tileWidth / 2 &&
-                    sprite.getMapX() < centerXInMap + MarioGame.tileWidth / 2 &&
-                    sprite.getMapY() >= 0 &&
-                    sprite.getMapY() > centerYInMap - MarioGame.tileHeight / 2 &&
-                    sprite.getMapY() < centerYInMap + MarioGame.tileHeight / 2) {
-                int obsX = sprite.getMapX() - centerXInMap + MarioGame.tileWidth / 2;
-                int obsY = sprite.getMapY() - centerYInMap + MarioGame.tileHeight / 2;
-                int tmp = MarioForwardModel.getSpriteTypeGeneralization(sprite.type, enemiesDetail);
+            int mapX = sprite.getMapX();
+            int mapY = sprite.getMapY();
+            if (mapX >= 0 &&
+                    mapX > centerXInMap - MarioGame.tileWidth / 2 &&
+                    mapX < centerXInMap + MarioGame.tileWidth / 2 &&
+                    mapY >= 0 &&
+                    mapY > centerYInMap - MarioGame.tileHeight / 2 &&
+                    mapY < centerYInMap + MarioGame.tileHeight / 2) {
+                int obsX = mapX - centerXInMap + MarioGame.tileWidth / 2;
+                int obsY = mapY - centerYInMap + MarioGame.tileHeight / 2;
+                int tmp = enemiesGeneralization[sprite.type.ordinal()];
                 if (tmp != SpriteType.NONE.getValue()) {
                     ret[obsX][obsY] = tmp;
                 }
@@ -284,6 +587,67 @@ public class MarioWorld {
         return ret;
     }
 
+    //flat observations keep the [x][y] order of the grids, so cell (x, y) is at x * tileHeight + y
+    public int[] getSceneObservation(float centerX, float centerY, int detail, int[] ret) {
+        this.writeSceneObservation(centerX, centerY, MarioForwardModel.getBlockGeneralizationTable(detail), true, ret);
+        return ret;
+    }
+
+    public int[] getEnemiesObservation(float centerX, float centerY, int detail, int[] ret) {
+        Arrays.fill(ret, 0, MarioGame.tileWidth * MarioGame.tileHeight, 0);
+        this.writeEnemiesObservation(centerX, centerY, MarioForwardModel.getSpriteGeneralizationTable(detail), false, ret);
+        return ret;
+    }
+
+    public int[] getMergedObservation(float centerX, float centerY, int sceneDetail, int enemiesDetail, int[] ret) {
+        this.writeSceneObservation(centerX, centerY, MarioForwardModel.getBlockGeneralizationTable(sceneDetail), false, ret);
+        this.writeEnemiesObservation(centerX, centerY, MarioForwardModel.getSpriteGeneralizationTable(enemiesDetail), true, ret);
+        return ret;
+    }
+
+    //the scene grid clamps rows outside the level to the edge, the merged grid reads them as empty like getBlock does
+    private void writeSceneObservation(float centerX, float centerY, int[] generalization, boolean clampRows, int[] ret) {
+        int startX = (int) centerX / 16 - MarioGame.tileWidth / 2;
+        int startY = (int) centerY / 16 - MarioGame.tileHeight / 2;
+        for (int obsX = 0; obsX < MarioGame.tileWidth; obsX++) {
+            int cell = obsX * MarioGame.tileHeight;
+            for (int obsY = 0; obsY < MarioGame.tileHeight; obsY++) {
+                int y = startY + obsY;
+                if (clampRows) {
+                    y = Math.max(0, Math.min(y, this.level.tileHeight - 1));
+                }
+                //getBlock clamps the column itself
+                ret[cell + obsY] = generalization[this.level.getBlock(startX + obsX, y)];
+            }
+        }
+    }
+
+    //the merged grid keeps the scene under sprites that generalize to nothing
+    private void writeEnemiesObservation(float centerX, float centerY, int[] generalization, boolean skipNone, int[] ret) {
+        int centerXInMap = (int) centerX / 16;
+        int centerYInMap = (int) centerY / 16;
+        for (int i = 0; i < this.sprites.size(); i++) {
+            MarioSprite sprite = this.sprites.get(i);
+            if (sprite.type == SpriteType.MARIO)
+                continue;
+            int mapX = sprite.getMapX();
+            int mapY = sprite.getMapY();
+            if (mapX >= 0 &&
+                    mapX > centerXInMap - MarioGame.tileWidth / 2 &&
+                    mapX < centerXInMap + MarioGame.tileWidth / 2 &&
+                    mapY >= 0 &&
+                    mapY > centerYInMap - MarioGame.tileHeight / 2 &&
+                    mapY < centerYInMap + MarioGame.tileHeight / 2) {
+                int obsX = mapX - centerXInMap + MarioGame.tileWidth / 2;
+                int obsY = mapY - centerYInMap + MarioGame.tileHeight / 2;
+                int value = generalization[sprite.type.ordinal()];
+                if (!skipNone || value != SpriteType.NONE.getValue()) {
+                    ret[obsX * MarioGame.tileHeight + obsY] = value;
+                }
+            }
+        }
+    }
+
     private boolean isEnemy(MarioSprite sprite) {
         return sprite instanceof Enemy || sprite instanceof FlowerEnemy || sprite instanceof BulletBill;
     }
@@ -331,7 +695,8 @@ public class MarioWorld {
         this.lastFrameEvents.clear();
 
         this.fireballsOnScreen = 0;
-        for (MarioSprite sprite : sprites) {
+        for (int i = 0; i < this.sprites.size(); i++) {
+            MarioSprite sprite = this.sprites.get(i);
             if (sprite.x < cameraX - 64 || sprite.x > cameraX + MarioGame.width + 64 || sprite.y > this.level.height + 32) {
                 if (sprite.type == SpriteType.MARIO) {
                     this.lose();
@@ -348,6 +713,7 @@ public class MarioWorld {
         }
         this.level.update((int) cameraX, (int) cameraY);
 
+        boolean spawnedCodesReady = false;
         for (int x = (int) cameraX / 16 - 1; x <= (int) (cameraX + MarioGame.width) / 16 + 1; x++) {
             for (int y = (int) cameraY / 16 - 1; y <= (int) (cameraY + MarioGame.height) / 16 + 1; y++) {
                 int dir = 0;
@@ -358,16 +724,22 @@ public class MarioWorld {
 
                 SpriteType type = level.getSpriteType(x, y);
                 if (type != SpriteType.NONE && type != null) {
-                    String spriteCode = level.getSpriteCode(x, y);
-                    boolean found = false;
-                    for (MarioSprite sprite : sprites) {
-                        if (sprite.initialCode.equals(spriteCode)) {
-                            found = true;
-                            break;
+                    //a template only spawns the first time it comes into view
+                    if (this.level.getLastSpawnTick(x, y) == -40) {
+                        long spriteCode = level.getSpriteCode(x, y);
+                        if (!spawnedCodesReady) {
+                            if (spawnedCodes == null) {
+                                spawnedCodes = new LongHashSet();
+                            }
+                            spawnedCodes.clear();
+                            for (MarioSprite sprite : sprites) {
+                                if (sprite.initialCode != MarioSprite.NO_CODE) {
+                                    spawnedCodes.add(sprite.initialCode);
+                                }
+                            }
+                            spawnedCodesReady = true;
                         }
-                    }
-                    if (!found) {
-                        if (this.level.getLastSpawnTick(x, y) == -40) {
+                        if (!spawnedCodes.contains(spriteCode)) {
                             MarioSprite sprite = type.spawnSprite(this.visuals, x, y, dir);
                             sprite.initialCode = spriteCode;
                             this.addSprite(sprite);
@@ -377,8 +749,7 @@ public class MarioWorld {
                 }
 
                 if (dir != 0) {
-                    ArrayList<TileFeature> features = TileFeature.getTileType(this.level.getBlock(x, y));
-                    if (features.contains(TileFeature.SPAWNER)) {
+                    if (TileFeature.hasFeature(this.level.getBlock(x, y), TileFeature.SPAWNER)) {
                         if (this.currentTick % 100 == 0) {
                             addSprite(new BulletBill(this.visuals, x * 16 + 8 + dir * 8, y * 16 + 15, dir));
                         }
@@ -388,21 +759,32 @@ public class MarioWorld {
         }
 
         this.mario.actions = actions;
-        for (MarioSprite sprite : sprites) {
+        for (int i = 0; i < sprites.size(); i++) {
+            MarioSprite sprite = sprites.get(i);
             if (!sprite.alive) {
                 continue;
             }
             sprite.update();
         }
-        for (MarioSprite sprite : sprites) {
+        for (int i = 0; i < sprites.size(); i++) {
+            MarioSprite sprite = sprites.get(i);
             if (!sprite.alive) {
                 continue;
             }
             sprite.collideCheck();
         }
 
+        if (!shellsToCheck.isEmpty() || !fireballsToCheck.isEmpty()) {
+            if (spriteGrid == null) {
+                spriteGrid = new SpriteGrid();
+            }
+            spriteGrid.build(sprites);
+        }
         for (Shell shell : shellsToCheck) {
-            for (MarioSprite sprite : sprites) {
+            int candidates = spriteGrid.query(shell.x, 16);
+            int[] indices = spriteGrid.getResult();
+            for (int i = 0; i < candidates; i++) {
+                MarioSprite sprite = sprites.get(indices[i]);
                 if (sprite != shell && shell.alive && sprite.alive) {
                     if (sprite.shellCollideCheck(shell)) {
                         this.removeSprite(sprite);
@@ -413,7 +795,10 @@ public class MarioWorld {
         shellsToCheck.clear();
 
         for (Fireball fireball : fireballsToCheck) {
-            for (MarioSprite sprite : sprites) {
+            int candidates = spriteGrid.query(fireball.x, 16);
+            int[] indices = spriteGrid.getResult();
+            for (int i = 0; i < candidates; i++) {
+                MarioSprite sprite = sprites.get(indices[i]);
                 if (sprite != fireball && fireball.alive && sprite.alive) {
                     if (sprite.fireballCollideCheck(fireball)) {
                         if (this.visuals) {
@@ -426,7 +811,8 @@ public class MarioWorld {
         }
         fireballsToCheck.clear();
 
-        sprites.addAll(0, addedSprites);
+        //new sprites go in front and removed ones leave without moving the rest, the same order as addAll(0) and removeAll
+        sprites.addAllFirst(addedSprites);
         sprites.removeAll(removedSprites);
         addedSprites.clear();
         removedSprites.clear();
@@ -443,21 +829,21 @@ public class MarioWorld {
 
     public void bump(int xTile, int yTile, boolean canBreakBricks) {
         int block = this.level.getBlock(xTile, yTile);
-        ArrayList<TileFeature> features = TileFeature.getTileType(block);
+        int features = TileFeature.getTileMask(block);
 
-        if (features.contains(TileFeature.BUMPABLE)) {
+        if ((features & TileFeature.BUMPABLE.getMask()) != 0) {
             bumpInto(xTile, yTile - 1);
             this.addEvent(EventType.BUMP, MarioForwardModel.OBS_QUESTION_BLOCK);
             level.setBlock(xTile, yTile, 14);
             level.setShiftIndex(xTile, yTile, 4);
 
-            if (features.contains(TileFeature.SPECIAL)) {
+            if ((features & TileFeature.SPECIAL.getMask()) != 0) {
                 if (!this.mario.isLarge) {
                     addSprite(new Mushroom(this.visuals, xTile * 16 + 9, yTile * 16 + 8));
                 } else {
                     addSprite(new FireFlower(this.visuals, xTile * 16 + 9, yTile * 16 + 8));
                 }
-            } else if (features.contains(TileFeature.LIFE)) {
+            } else if ((features & TileFeature.LIFE.getMask()) != 0) {
                 addSprite(new LifeMushroom(this.visuals, xTile * 16 + 9, yTile * 16 + 8));
             } else {
                 mario.collectCoin();
@@ -467,7 +853,7 @@ public class MarioWorld {
             }
         }
 
-        if (features.contains(TileFeature.BREAKABLE)) {
+        if ((features & TileFeature.BREAKABLE.getMask()) != 0) {
             bumpInto(xTile, yTile - 1);
             if (canBreakBricks) {
                 this.addEvent(EventType.BUMP, MarioForwardModel.OBS_BRICK);
@@ -488,7 +874,7 @@ public class MarioWorld {
 
     public void bumpInto(int xTile, int yTile) {
         int block = level.getBlock(xTile, yTile);
-        if (TileFeature.getTileType(block).contains(TileFeature.PICKABLE)) {
+        if (TileFeature.hasFeature(block, TileFeature.PICKABLE)) {
             this.addEvent(EventType.COLLECT, block);
             this.mario.collectCoin();
             level.setBlock(xTile, yTile, 0);
@@ -497,8 +883,8 @@ public class MarioWorld {
             }
         }
 
-        for (MarioSprite sprite : sprites) {
-            sprite.bumpCheck(xTile, yTile);
+        for (int i = 0; i < sprites.size(); i++) {
+            sprites.get(i).bumpCheck(xTile, yTile);
         }
     }
 
@@ -0,0 +1,93 @@
+package engine.core;
+
+import engine.sprites.MarioSprite;
+
+import java.util.Arrays;
+
+/**
+ * Buckets the sprites of a world by tile column so collision checks only look at sprites that are close by.
+ * The buckets store indices into the sprite list, and queries return them in list order so the engine
+ * processes the candidates in the same order as a scan over the whole list would.
+ */
+class SpriteGrid {
+    private int firstColumn;
+    private int[][] buckets = new int[0][];
+    private int[] bucketSizes = new int[0];
+    private int[] result = new int[16];
+    private int resultSize;
+
+    /**
+     * Rebuild the grid from the current sprite positions
+     *
+     * @param sprites the sprites of the world, their positions must not change while the grid is queried
+     */
+    void build(SpriteList sprites) {
+        int minColumn = Integer.MAX_VALUE;
+        int maxColumn = Integer.MIN_VALUE;
+        for (MarioSprite sprite : sprites) {
+            int column = getColumn(sprite.x);
+            minColumn = Math.min(minColumn, column);
+            maxColumn = Math.max(maxColumn, column);
+        }
+        if (sprites.isEmpty()) {
+            minColumn = maxColumn = 0;
+        }
+
+        int columns = maxColumn - minColumn + 1;
+        if (this.buckets.length < columns) {
+            this.buckets = Arrays.copyOf(this.buckets, columns);
+            this.bucketSizes = new int[columns];
+        }
+        Arrays.fill(this.bucketSizes, 0);
+        this.firstColumn = minColumn;
+        for (int i = 0; i < sprites.size(); i++) {
+            int column = getColumn(sprites.get(i).x) - minColumn;
+            int[] bucket = this.buckets[column];
+            if (bucket == null) {
+                bucket = this.buckets[column] = new int[4];
+            } else if (bucket.length == this.bucketSizes[column]) {
+                bucket = this.buckets[column] = Arrays.copyOf(bucket, bucket.length * 2);
+            }
+            bucket[this.bucketSizes[column]++] = i;
+        }
+    }
+
+    /**
+     * Find all the sprites whose x position is within a distance of a point. The result can include sprites
+     * that are a bit further away, the caller still has to do the exact check.
+     *
+     * @param x        the center of the query
+     * @param distance the largest horizontal distance that is of interest
+     * @return the number of candidates, their sprite indices are returned by getResult in ascending order
+     */
+    int query(float x, float distance) {
+        //one extra column on each side so float rounding can never lose a sprite on the boundary
+        int from = Math.max(getColumn(x - distance) - 1 - this.firstColumn, 0);
+        int to = Math.min(getColumn(x + distance) + 1 - this.firstColumn, this.bucketSizes.length - 1);
+        this.resultSize = 0;
+        for (int column = from; column <= to; column++) {
+            int size = this.bucketSizes[column];
+            if (size == 0) {
+                continue;
+            }
+            if (this.result.length < this.resultSize + size) {
+                this.result = Arrays.copyOf(this.result, Math.max(this.result.length * 2, this.resultSize + size));
+            }
+            System.arraycopy(this.buckets[column], 0, this.result, this.resultSize, size);
+            this.resultSize += size;
+        }
+        Arrays.sort(this.result, 0, this.resultSize);
+        return this.resultSize;
+    }
+
+    /**
+     * @return the sprite indices found by the last query, only the first query() values are valid
+     */
+    int[] getResult() {
+        return this.result;
+    }
+
+    private static int getColumn(float x) {
+        return (int) Math.floor(x / 16);
+    }
+}
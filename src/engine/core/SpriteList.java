@@ -0,0 +1,137 @@
+package engine.core;
+
+import engine.sprites.MarioSprite;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * The sprites of a world in update order. New sprites of a tick go in front of the older ones like they did
+ * with addAll(0, ...) on a list, but the array keeps free room before the first sprite so adding them does not
+ * move the others. Removed sprites are dropped in one pass that keeps the order of the rest.
+ */
+class SpriteList implements Iterable<MarioSprite> {
+    private MarioSprite[] slots = new MarioSprite[32];
+    private int head = 16;
+    private int tail = 16;
+
+    int size() {
+        return this.tail - this.head;
+    }
+
+    boolean isEmpty() {
+        return this.tail == this.head;
+    }
+
+    MarioSprite get(int index) {
+        return this.slots[this.head + index];
+    }
+
+    void set(int index, MarioSprite sprite) {
+        this.slots[this.head + index] = sprite;
+    }
+
+    /**
+     * Drop every sprite after the first size ones
+     *
+     * @param size the number of sprites to keep
+     */
+    void truncate(int size) {
+        int tail = this.head + size;
+        for (int i = tail; i < this.tail; i++) {
+            this.slots[i] = null;
+        }
+        this.tail = Math.min(this.tail, tail);
+    }
+
+    /**
+     * Add a sprite behind all the others
+     *
+     * @param sprite the sprite to add
+     */
+    void add(MarioSprite sprite) {
+        if (this.tail == this.slots.length) {
+            this.grow(0, 1);
+        }
+        this.slots[this.tail++] = sprite;
+    }
+
+    /**
+     * Add sprites in front of all the others, keeping their order
+     *
+     * @param sprites the sprites to add
+     */
+    void addAllFirst(ArrayList<MarioSprite> sprites) {
+        int count = sprites.size();
+        if (count > this.head) {
+            this.grow(count, 0);
+        }
+        this.head -= count;
+        for (int i = 0; i < count; i++) {
+            this.slots[this.head + i] = sprites.get(i);
+        }
+    }
+
+    /**
+     * Remove every sprite that is in a set, the other sprites keep their order
+     *
+     * @param sprites the sprites to remove, compared by identity
+     */
+    void removeAll(Set<MarioSprite> sprites) {
+        if (sprites.isEmpty()) {
+            return;
+        }
+        int write = this.head;
+        for (int read = this.head; read < this.tail; read++) {
+            MarioSprite sprite = this.slots[read];
+            if (!sprites.contains(sprite)) {
+                this.slots[write++] = sprite;
+            }
+        }
+        for (int i = write; i < this.tail; i++) {
+            this.slots[i] = null;
+        }
+        this.tail = write;
+    }
+
+    void clear() {
+        for (int i = this.head; i < this.tail; i++) {
+            this.slots[i] = null;
+        }
+        this.head = this.tail = this.slots.length / 2;
+    }
+
+    //makes room for at least front more sprites before the first one and back more after the last one
+    private void grow(int front, int back) {
+        int size = this.size();
+        int room = Math.max(16, size / 2);
+        MarioSprite[] grown = new MarioSprite[front + room + size + room + back];
+        int newHead = front + room;
+        System.arraycopy(this.slots, this.head, grown, newHead, size);
+        this.slots = grown;
+        this.head = newHead;
+        this.tail = newHead + size;
+    }
+
+    @Override
+    public Iterator<MarioSprite> iterator() {
+        return new Iterator<MarioSprite>() {
+            private int index = head;
+
+            @Override
+            public boolean hasNext() {
+                return this.index < tail;
+            }
+
+            @Override
+            public MarioSprite next() {
+                if (this.index >= tail) {
+                    throw new NoSuchElementException();
+                }
+                return slots[this.index++];
+            }
+        };
+    }
+}
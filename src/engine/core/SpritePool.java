@@ -0,0 +1,108 @@
+package engine.core;
+
+import engine.helper.SpriteType;
+import engine.sprites.MarioSprite;
+
+import java.util.Arrays;
+
+/**
+ * Sprites that are no longer used, kept by type so copying a list of sprites over an old one can reuse the
+ * old objects through MarioSprite.cloneInto instead of allocating new ones.
+ */
+class SpritePool {
+    private final MarioSprite[][] free;
+    private final int[] sizes;
+    //types that have had sprites since the last clear, so clear does not look at the others
+    private final int[] usedTypes;
+    private final boolean[] used;
+    private int usedCount;
+
+    SpritePool() {
+        int types = SpriteType.values().length;
+        this.free = new MarioSprite[types][4];
+        this.sizes = new int[types];
+        this.usedTypes = new int[types];
+        this.used = new boolean[types];
+    }
+
+    /**
+     * Give a sprite to the pool, it must not be used anywhere else afterwards
+     *
+     * @param sprite the sprite that is no longer used
+     */
+    void add(MarioSprite sprite) {
+        int type = sprite.type.ordinal();
+        int size = this.sizes[type];
+        if (!this.used[type]) {
+            this.used[type] = true;
+            this.usedTypes[this.usedCount++] = type;
+        }
+        if (size == this.free[type].length) {
+            this.free[type] = Arrays.copyOf(this.free[type], size * 2);
+        }
+        this.free[type][size] = sprite;
+        this.sizes[type] = size + 1;
+    }
+
+    /**
+     * Copy a sprite into a pooled sprite of the same type, or into a new one if there is none
+     *
+     * @param sprite the sprite to copy
+     * @return the copy, the same as sprite.clone() would return
+     */
+    MarioSprite copy(MarioSprite sprite) {
+        int type = sprite.type.ordinal();
+        int size = this.sizes[type];
+        if (size == 0) {
+            return sprite.clone();
+        }
+        size--;
+        MarioSprite pooled = this.free[type][size];
+        this.free[type][size] = null;
+        this.sizes[type] = size;
+        return sprite.cloneInto(pooled);
+    }
+
+    /**
+     * Make a list a copy of another one. A sprite of the target that has the same type as the source sprite at
+     * its position is written over in place, the other ones are pooled and used for the remaining copies.
+     * The pool is empty afterwards.
+     *
+     * @param source the sprites to copy
+     * @param target the sprites to write over, none of them may be used anywhere else
+     */
+    void copyAll(SpriteList source, SpriteList target) {
+        int count = source.size();
+        int old = target.size();
+        for (int i = 0; i < old; i++) {
+            if (i >= count || target.get(i).type != source.get(i).type) {
+                this.add(target.get(i));
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            MarioSprite sprite = source.get(i);
+            if (i >= old) {
+                target.add(this.copy(sprite));
+            } else if (target.get(i).type == sprite.type) {
+                target.set(i, sprite.cloneInto(target.get(i)));
+            } else {
+                target.set(i, this.copy(sprite));
+            }
+        }
+        target.truncate(count);
+        this.clear();
+    }
+
+    /**
+     * Drop every pooled sprite
+     */
+    void clear() {
+        for (int i = 0; i < this.usedCount; i++) {
+            int type = this.usedTypes[i];
+            Arrays.fill(this.free[type], 0, this.sizes[type], null);
+            this.sizes[type] = 0;
+            this.used[type] = false;
+        }
+        this.usedCount = 0;
+    }
+}
@@ -0,0 +1,268 @@
+package engine.core;
+
+import engine.helper.GameStatus;
+import engine.helper.MarioActions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.*;
+
+/**
+ * Steps a fixed number of headless worlds together, for training agents that pick the actions of many games
+ * at once. Observations, rewards and done flags are written into flat arrays that are allocated once, and a
+ * world that finishes is started again right away on a level picked from the level pool. The worlds are split
+ * into one slice per worker thread, every worker steps its own worlds, so nothing is shared between threads.
+ * <p>
+ * The observation of world i is the merged observation around mario, flattened like the flat observations of
+ * MarioForwardModel, starting at i * getObservationSize(). The reward is the distance mario moved to the
+ * right during the step, in tiles. The state of mario in world i is written at i * MARIO_STATE_SIZE as x, y,
+ * x speed, y speed, mode, on ground, may jump and can jump higher, the last three as 0 or 1.
+ */
+public class VectorMarioEnv {
+    /**
+     * number of floats in the mario state of a single world
+     */
+    public static final int MARIO_STATE_SIZE = 8;
+
+    private final int numEnvs;
+    private final List<CompiledLevel> levels;
+    private final int timer;
+    private final int marioState;
+    private int sceneDetail;
+    private int enemiesDetail;
+
+    private final MarioWorld[] worlds;
+    private final Random[] randoms;
+    private final float[] lastX;
+    private final boolean[][] actionBuffers;
+    private final int[][] observationBuffers;
+
+    private final int[] observations;
+    private final float[] marioStates;
+    private final float[] rewards;
+    private final boolean[] dones;
+    private final GameStatus[] statuses;
+
+    private final ExecutorService pool;
+    private final List<Callable<Void>> slices;
+    private int[] currentActions;
+
+    /**
+     * Create the environment and start a game in every world
+     *
+     * @param numEnvs    the number of worlds stepped together
+     * @param levels     the level pool, every new game picks one of them at random
+     * @param timer      number of seconds each game is played for. Setting timer to anything <=0 will make the time infinite
+     * @param marioState the initial state of mario. 0 small mario, 1 large mario, and 2 fire mario.
+     * @param workers    number of worker threads, anything <= 0 uses one per available processor
+     * @param seed       seed of the level picks, world i uses seed + i so the picks do not depend on the threads
+     */
+    public VectorMarioEnv(int numEnvs, List<CompiledLevel> levels, int timer, int marioState, int workers, long seed) {
+        if (numEnvs <= 0) {
+            throw new IllegalArgumentException("The environment needs at least one world");
+        }
+        if (levels.isEmpty()) {
+            throw new IllegalArgumentException("The level pool is empty");
+        }
+        if (workers <= 0) {
+            workers = Runtime.getRuntime().availableProcessors();
+        }
+        workers = Math.min(workers, numEnvs);
+        this.numEnvs = numEnvs;
+        this.levels = new ArrayList<>(levels);
+        this.timer = timer;
+        this.marioState = marioState;
+        this.sceneDetail = 1;
+        this.enemiesDetail = 0;
+
+        int observationSize = this.getObservationSize();
+        this.worlds = new MarioWorld[numEnvs];
+        this.randoms = new Random[numEnvs];
+        this.lastX = new float[numEnvs];
+        this.actionBuffers = new boolean[numEnvs][MarioActions.numberOfActions()];
+        this.observationBuffers = new int[numEnvs][observationSize];
+        this.observations = new int[numEnvs * observationSize];
+        this.marioStates = new float[numEnvs * MARIO_STATE_SIZE];
+        this.rewards = new float[numEnvs];
+        this.dones = new boolean[numEnvs];
+        this.statuses = new GameStatus[numEnvs];
+        for (int i = 0; i < numEnvs; i++) {
+            this.randoms[i] = new Random(seed + i);
+        }
+
+        this.slices = new ArrayList<>();
+        for (int w = 0; w < workers; w++) {
+            final int start = w * numEnvs / workers;
+            final int end = (w + 1) * numEnvs / workers;
+            this.slices.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    for (int i = start; i < end; i++) {
+                        stepWorld(i);
+                    }
+                    return null;
+                }
+            });
+        }
+        this.pool = workers > 1 ? Executors.newFixedThreadPool(workers) : null;
+        this.reset();
+    }
+
+    /**
+     * Choose the detail of the observations, the default is 1 for the scene and 0 for the enemies
+     *
+     * @param sceneDetail   the detail level of the scene: 0 all detail, 1 less detailed, 2 binary detail
+     * @param enemiesDetail the detail level of the enemies: 0 all details, 1 less detailed, 2 binary detail
+     */
+    public void setObservationDetail(int sceneDetail, int enemiesDetail) {
+        this.sceneDetail = sceneDetail;
+        this.enemiesDetail = enemiesDetail;
+        for (int i = 0; i < this.numEnvs; i++) {
+            this.writeObservation(i);
+        }
+    }
+
+    /**
+     * Start a new game in every world
+     */
+    public void reset() {
+        for (int i = 0; i < this.numEnvs; i++) {
+            this.resetWorld(i);
+            this.rewards[i] = 0;
+            this.dones[i] = false;
+            this.statuses[i] = GameStatus.RUNNING;
+        }
+    }
+
+    /**
+     * Advance every world by one tick. Worlds whose game ends in this step have their done flag set and the
+     * final status kept in getStatuses, then start a new game, so their observation is the first one of it.
+     *
+     * @param actions the actions of every world, bit i of actions[w] is action i of MarioActions
+     */
+    public void step(int[] actions) {
+        if (actions.length != this.numEnvs) {
+            throw new IllegalArgumentException("Expected " + this.numEnvs + " actions but got " + actions.length);
+        }
+        this.currentActions = actions;
+        if (this.pool == null) {
+            for (int i = 0; i < this.numEnvs; i++) {
+                this.stepWorld(i);
+            }
+            return;
+        }
+        try {
+            for (Future<Void> slice : this.pool.invokeAll(this.slices)) {
+                slice.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Vector environment step was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A world in the vector environment failed", e.getCause());
+        }
+    }
+
+    /**
+     * Stop the worker threads, the environment can not be stepped after it is closed
+     */
+    public void close() {
+        if (this.pool != null) {
+            this.pool.shutdownNow();
+        }
+    }
+
+    /**
+     * @return the number of worlds
+     */
+    public int getNumEnvs() {
+        return this.numEnvs;
+    }
+
+    /**
+     * @return the number of values in the observation of a single world
+     */
+    public int getObservationSize() {
+        return MarioGame.tileWidth * MarioGame.tileHeight;
+    }
+
+    /**
+     * @return the observations of all the worlds, overwritten by every step
+     */
+    public int[] getObservations() {
+        return this.observations;
+    }
+
+    /**
+     * @return the mario state of all the worlds, overwritten by every step
+     */
+    public float[] getMarioStates() {
+        return this.marioStates;
+    }
+
+    /**
+     * @return the reward of every world in the last step, overwritten by every step
+     */
+    public float[] getRewards() {
+        return this.rewards;
+    }
+
+    /**
+     * @return true for every world whose game ended in the last step, overwritten by every step
+     */
+    public boolean[] getDones() {
+        return this.dones;
+    }
+
+    /**
+     * @return the status every world ended the last step with, WIN, LOSE or TIME_OUT for the finished ones
+     */
+    public GameStatus[] getStatuses() {
+        return this.statuses;
+    }
+
+    private void stepWorld(int i) {
+        MarioWorld world = this.worlds[i];
+        boolean[] actions = this.actionBuffers[i];
+        int packed = this.currentActions[i];
+        for (int a = 0; a < actions.length; a++) {
+            actions[a] = (packed & (1 << a)) != 0;
+        }
+        world.update(actions);
+        this.rewards[i] = (world.mario.x - this.lastX[i]) / 16;
+        this.lastX[i] = world.mario.x;
+        this.statuses[i] = world.gameStatus;
+        this.dones[i] = world.gameStatus != GameStatus.RUNNING;
+        if (this.dones[i]) {
+            this.resetWorld(i);
+        } else {
+            this.writeObservation(i);
+        }
+    }
+
+    private void resetWorld(int i) {
+        CompiledLevel level = this.levels.get(this.randoms[i].nextInt(this.levels.size()));
+        MarioWorld world = MarioWorld.createGame(level, this.timer, this.marioState, null);
+        this.worlds[i] = world;
+        this.lastX[i] = world.mario.x;
+        this.writeObservation(i);
+    }
+
+    private void writeObservation(int i) {
+        MarioWorld world = this.worlds[i];
+        int[] observation = world.getMergedObservation(world.mario.x, world.mario.y, this.sceneDetail,
+                this.enemiesDetail, this.observationBuffers[i]);
+        System.arraycopy(observation, 0, this.observations, i * observation.length, observation.length);
+
+        int state = i * MARIO_STATE_SIZE;
+        this.marioStates[state] = world.mario.x;
+        this.marioStates[state + 1] = world.mario.y;
+        this.marioStates[state + 2] = world.mario.xa;
+        this.marioStates[state + 3] = world.mario.ya;
+        this.marioStates[state + 4] = world.mario.isFire ? 2 : world.mario.isLarge ? 1 : 0;
+        this.marioStates[state + 5] = world.mario.onGround ? 1 : 0;
+        this.marioStates[state + 6] = world.mario.mayJump ? 1 : 0;
+        this.marioStates[state + 7] = world.mario.jumpTime > 0 ? 1 : 0;
+    }
+}
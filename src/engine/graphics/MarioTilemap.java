@@ -1,23 +1,23 @@
 package engine.graphics;
 
 import engine.core.MarioGame;
+import engine.core.MarioLevel;
 import engine.helper.TileFeature;
 
 import java.awt.*;
-import java.util.ArrayList;
 
 public class MarioTilemap extends MarioGraphics {
     public Image[][] sheet;
-    public int[][] currentIndeces;
+    public MarioLevel level;
     public int[][] indexShift;
     public float[][] moveShift;
     public int animationIndex;
 
-    public MarioTilemap(Image[][] sheet, int[][] currentIndeces) {
+    public MarioTilemap(Image[][] sheet, MarioLevel level) {
         this.sheet = sheet;
-        this.currentIndeces = currentIndeces;
-        this.indexShift = new int[currentIndeces.length][currentIndeces[0].length];
-        this.moveShift = new float[currentIndeces.length][currentIndeces[0].length];
+        this.level = level;
+        this.indexShift = new int[level.tileWidth][level.tileHeight];
+        this.moveShift = new float[level.tileWidth][level.tileHeight];
         this.animationIndex = 0;
     }
 
@@ -32,7 +32,7 @@ public class MarioTilemap extends MarioGraphics {
 
         for (int xTile = xMin; xTile <= xMax; xTile++) {
             for (int yTile = yMin; yTile <= yMax; yTile++) {
-                if (xTile < 0 || yTile < 0 || xTile >= currentIndeces.length || yTile >= currentIndeces[0].length) {
+                if (xTile < 0 || yTile < 0 || xTile >= level.tileWidth || yTile >= level.tileHeight) {
                     continue;
                 }
                 if (this.moveShift[xTile][yTile] > 0) {
@@ -41,15 +41,15 @@ public class MarioTilemap extends MarioGraphics {
                         this.moveShift[xTile][yTile] = 0;
                     }
                 }
-                ArrayList<TileFeature> features = TileFeature.getTileType(this.currentIndeces[xTile][yTile]);
-                if (features.contains(TileFeature.ANIMATED)) {
+                int block = this.level.getBlock(xTile, yTile);
+                if (TileFeature.hasFeature(block, TileFeature.ANIMATED)) {
                     if (this.animationIndex == 0) {
                         this.indexShift[xTile][yTile] = (this.indexShift[xTile][yTile] + 1) % 3;
                     }
                 } else {
                     this.indexShift[xTile][yTile] = 0;
                 }
-                int index = currentIndeces[xTile][yTile] + indexShift[xTile][yTile];
+                int index = block + indexShift[xTile][yTile];
                 int move = (int) moveShift[xTile][yTile];
                 Image img = sheet[index % 8][index / 8];
                 og.drawImage(img, xTile * 16 - x, yTile * 16 - y - move, null);
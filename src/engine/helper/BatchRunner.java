@@ -0,0 +1,150 @@
+package engine.helper;
+
+import agents.MarioAgent;
+import engine.core.MarioGame;
+import engine.core.MarioSummary;
+
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Plays a batch of headless games on a pool of worker threads and merges their statistics as they finish.
+ * Every game gets its own MarioGame (and so its own MarioWorld) and a fresh agent from the job's factory,
+ * so nothing is shared between workers except the level strings.
+ */
+public class BatchRunner {
+    /**
+     * Creates a new agent instance for a single game.
+     */
+    public interface AgentFactory {
+        /**
+         * @param seed the seed of the job, agents that use randomness can use it to be reproducible.
+         * @return a new agent that is only used by one game.
+         */
+        MarioAgent createAgent(long seed);
+    }
+
+    /**
+     * A single game to be played: which agent, on which level, with which seed.
+     */
+    public static class Job {
+        public final AgentFactory agent;
+        public final String name;
+        public final String level;
+        public final long seed;
+
+        /**
+         * @param agent - factory used to create the agent playing this game.
+         * @param name - name of the job used when reporting progress.
+         * @param level - the level contents, each line a list of characters, separated by '\n'.
+         * @param seed - seed passed to the agent factory.
+         */
+        public Job(AgentFactory agent, String name, String level, long seed) {
+            this.agent = agent;
+            this.name = name;
+            this.level = level;
+            this.seed = seed;
+        }
+    }
+
+    private final int workers;
+    private final int timer;
+    private final int marioState;
+    private boolean verbose = true;
+
+    private int gamesPlayed;
+    private long elapsedTime;
+
+    /**
+     * @param workers - number of worker threads, anything <= 0 uses one per available processor.
+     * @param timer - number of seconds each game is played for.
+     * @param marioState - the initial state of mario. 0 small mario, 1 large mario, and 2 fire mario.
+     */
+    public BatchRunner(int workers, int timer, int marioState) {
+        if (workers <= 0) {
+            workers = Runtime.getRuntime().availableProcessors();
+        }
+        this.workers = workers;
+        this.timer = timer;
+        this.marioState = marioState;
+    }
+
+    /**
+     * @param verbose - print the status of each game as it finishes.
+     */
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
+    }
+
+    /**
+     * Plays all the jobs and merges their statistics in the order the games finish.
+     * @param jobs - the games to be played.
+     * @return the merged statistics of all the played games.
+     */
+    public MarioStats run(List<Job> jobs) {
+        ExecutorService pool = Executors.newFixedThreadPool(this.workers);
+        CompletionService<MarioStats> completion = new ExecutorCompletionService<>(pool);
+        long startTime = System.nanoTime();
+        try {
+            for (final Job job : jobs) {
+                completion.submit(new Callable<MarioStats>() {
+                    @Override
+                    public MarioStats call() {
+                        MarioSummary result = new MarioGame().runSimulation(job.agent.createAgent(job.seed),
+                                job.level, timer, marioState, false);
+                        if (verbose) {
+                            System.out.println(job.name + ": " + result.getGameStatus().toString());
+                        }
+                        return RunUtils.resultToStats(result);
+                    }
+                });
+            }
+
+            MarioStats merged = new MarioStats();
+            for (int i = 0; i < jobs.size(); i++) {
+                merged = merged.merge(completion.take().get());
+            }
+            this.gamesPlayed = jobs.size();
+            this.elapsedTime = System.nanoTime() - startTime;
+            return merged;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Batch run was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A game in the batch run failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * @return the number of games played by the last run.
+     */
+    public int getGamesPlayed() {
+        return this.gamesPlayed;
+    }
+
+    /**
+     * @return the wall clock seconds taken by the last run.
+     */
+    public double getElapsedSeconds() {
+        return this.elapsedTime / 1e9;
+    }
+
+    /**
+     * @return the throughput of the last run in games per second.
+     */
+    public double getGamesPerSecond() {
+        if (this.elapsedTime <= 0) {
+            return 0;
+        }
+        return this.gamesPlayed / this.getElapsedSeconds();
+    }
+
+    /**
+     * @return the number of worker threads used by this runner.
+     */
+    public int getWorkers() {
+        return this.workers;
+    }
+}
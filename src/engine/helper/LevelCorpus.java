@@ -0,0 +1,233 @@
+package engine.helper;
+
+import engine.core.CompiledLevel;
+
+import java.io.*;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * All the levels of a levels folder compiled into a single indexed file. The reader maps the file into memory
+ * and returns levels by folder and number straight from the mapping, so sweeping over the whole corpus needs
+ * one open call instead of one per level.
+ * <p>
+ * Pack the levels folder with: java engine.helper.LevelCorpus levels levels.corpus
+ */
+public class LevelCorpus {
+    private static final int MAGIC = 0x4D4C4350;
+    private static final int VERSION = 1;
+
+    private final ByteBuffer buffer;
+    private final LinkedHashMap<String, Folder> folders;
+    private final int size;
+
+    private static class Folder {
+        //sorted level numbers and the position of each level in the file
+        private final int[] numbers;
+        private final int[] positions;
+
+        private Folder(int[] numbers, int[] positions) {
+            this.numbers = numbers;
+            this.positions = positions;
+        }
+    }
+
+    private LevelCorpus(ByteBuffer buffer, LinkedHashMap<String, Folder> folders) {
+        this.buffer = buffer;
+        this.folders = folders;
+        int size = 0;
+        for (Folder folder : folders.values()) {
+            size += folder.numbers.length;
+        }
+        this.size = size;
+    }
+
+    /**
+     * Compile every lvl-N.txt file in the sub folders of a levels folder and write them into one corpus file
+     *
+     * @param levelsFolder the folder holding one folder per level set, like the levels folder of the repository
+     * @param corpusFile   the file the corpus is written to
+     * @return the number of levels written
+     * @throws IOException if a level can not be read or the corpus can not be written
+     */
+    public static int pack(Path levelsFolder, Path corpusFile) throws IOException {
+        TreeMap<String, TreeMap<Integer, Path>> levels = new TreeMap<>();
+        try (DirectoryStream<Path> folders = Files.newDirectoryStream(levelsFolder)) {
+            for (Path folder : folders) {
+                if (!Files.isDirectory(folder)) {
+                    continue;
+                }
+                TreeMap<Integer, Path> numbered = new TreeMap<>();
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(folder, "lvl-*.txt")) {
+                    for (Path file : files) {
+                        String name = file.getFileName().toString();
+                        try {
+                            numbered.put(Integer.parseInt(name.substring(4, name.length() - 4)), file);
+                        } catch (NumberFormatException ignored) {
+                        }
+                    }
+                }
+                if (!numbered.isEmpty()) {
+                    levels.put(folder.getFileName().toString(), numbered);
+                }
+            }
+        }
+
+        int count = 0;
+        int indexPosition;
+        LinkedHashMap<String, Folder> index = new LinkedHashMap<>();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(corpusFile)))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            //the index goes at the end, its position is filled in once the levels are written
+            out.writeInt(0);
+            for (Map.Entry<String, TreeMap<Integer, Path>> folder : levels.entrySet()) {
+                int[] numbers = new int[folder.getValue().size()];
+                int[] positions = new int[numbers.length];
+                int i = 0;
+                for (Map.Entry<Integer, Path> level : folder.getValue().entrySet()) {
+                    numbers[i] = level.getKey();
+                    positions[i] = out.size();
+                    CompiledLevel.compile(new String(Files.readAllBytes(level.getValue()))).write(out);
+                    i++;
+                }
+                index.put(folder.getKey(), new Folder(numbers, positions));
+                count += numbers.length;
+            }
+            indexPosition = out.size();
+            out.writeInt(index.size());
+            for (Map.Entry<String, Folder> folder : index.entrySet()) {
+                out.writeUTF(folder.getKey());
+                out.writeInt(folder.getValue().numbers.length);
+                for (int i = 0; i < folder.getValue().numbers.length; i++) {
+                    out.writeInt(folder.getValue().numbers[i]);
+                    out.writeInt(folder.getValue().positions[i]);
+                }
+            }
+        }
+        try (RandomAccessFile file = new RandomAccessFile(corpusFile.toFile(), "rw")) {
+            file.seek(5);
+            file.writeInt(indexPosition);
+        }
+        return count;
+    }
+
+    /**
+     * Map a corpus file written by pack into memory
+     *
+     * @param corpusFile the corpus file
+     * @return the corpus, levels are read from the mapping when they are asked for
+     * @throws IOException if the file can not be mapped or is not a corpus
+     */
+    public static LevelCorpus open(Path corpusFile) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(corpusFile, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Not a level corpus: " + corpusFile);
+        }
+        int version = buffer.get() & 0xFF;
+        if (version != VERSION) {
+            throw new IOException("Unsupported level corpus version " + version);
+        }
+        //the Buffer cast keeps the class running on java 8, where position returns a Buffer
+        ((Buffer) buffer).position(buffer.getInt());
+        DataInputStream in = new DataInputStream(new ByteBufferInputStream(buffer));
+        int folderCount = in.readInt();
+        LinkedHashMap<String, Folder> folders = new LinkedHashMap<>();
+        for (int f = 0; f < folderCount; f++) {
+            String name = in.readUTF();
+            int[] numbers = new int[in.readInt()];
+            int[] positions = new int[numbers.length];
+            for (int i = 0; i < numbers.length; i++) {
+                numbers[i] = in.readInt();
+                positions[i] = in.readInt();
+            }
+            folders.put(name, new Folder(numbers, positions));
+        }
+        return new LevelCorpus(buffer, folders);
+    }
+
+    /**
+     * Get a level without copying it out of the corpus
+     *
+     * @param folder the name of the folder the level was in, for example "notch"
+     * @param number the number of the level, 5 for lvl-5.txt
+     * @return the compiled level, null if the corpus does not have it
+     * @throws IOException if the level in the corpus is damaged
+     */
+    public CompiledLevel getLevel(String folder, int number) throws IOException {
+        Folder levels = this.folders.get(folder);
+        if (levels == null) {
+            return null;
+        }
+        int i = Arrays.binarySearch(levels.numbers, number);
+        if (i < 0) {
+            return null;
+        }
+        ByteBuffer record = this.buffer.duplicate();
+        ((Buffer) record).position(levels.positions[i]);
+        return CompiledLevel.read(record);
+    }
+
+    /**
+     * @return the names of all the folders in the corpus in alphabetical order
+     */
+    public List<String> getFolders() {
+        return new ArrayList<>(this.folders.keySet());
+    }
+
+    /**
+     * @param folder the name of the folder
+     * @return the level numbers in that folder in ascending order, empty if there is no such folder
+     */
+    public int[] getLevelNumbers(String folder) {
+        Folder levels = this.folders.get(folder);
+        if (levels == null) {
+            return new int[0];
+        }
+        return levels.numbers.clone();
+    }
+
+    /**
+     * @return the number of levels in the corpus
+     */
+    public int size() {
+        return this.size;
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            if (!this.buffer.hasRemaining()) {
+                return -1;
+            }
+            return this.buffer.get() & 0xFF;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.out.println("usage: java engine.helper.LevelCorpus <levels folder> <corpus file>");
+            return;
+        }
+        long start = System.nanoTime();
+        int count = pack(Paths.get(args[0]), Paths.get(args[1]));
+        System.out.printf("Packed %d levels into %s in %.2f seconds%n", count, args[1], (System.nanoTime() - start) / 1e9);
+    }
+}
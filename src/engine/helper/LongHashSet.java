@@ -0,0 +1,107 @@
+package engine.helper;
+
+import java.util.Arrays;
+
+/**
+ * A set of primitive longs using open addressing, so adding and looking up keys never boxes them.
+ * Clearing keeps the table so a set that is refilled every frame stops allocating once it is large enough.
+ */
+public class LongHashSet {
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private long[] keys;
+    private int size;
+    private boolean hasEmptyKey;
+
+    public LongHashSet() {
+        this(16);
+    }
+
+    /**
+     * @param expectedSize the number of keys that can be added before the table grows
+     */
+    public LongHashSet(int expectedSize) {
+        int capacity = 8;
+        while (capacity < expectedSize * 2) {
+            capacity *= 2;
+        }
+        this.keys = new long[capacity];
+        Arrays.fill(this.keys, EMPTY);
+    }
+
+    /**
+     * @param key the key to add
+     * @return true if the key was not in the set before
+     */
+    public boolean add(long key) {
+        if (key == EMPTY) {
+            boolean added = !this.hasEmptyKey;
+            this.hasEmptyKey = true;
+            return added;
+        }
+        int slot = this.findSlot(key);
+        if (this.keys[slot] == key) {
+            return false;
+        }
+        this.keys[slot] = key;
+        this.size += 1;
+        if (this.size * 2 > this.keys.length) {
+            this.grow();
+        }
+        return true;
+    }
+
+    /**
+     * @param key the key to look for
+     * @return true if the key is in the set
+     */
+    public boolean contains(long key) {
+        if (key == EMPTY) {
+            return this.hasEmptyKey;
+        }
+        return this.keys[this.findSlot(key)] == key;
+    }
+
+    /**
+     * @return the number of keys in the set
+     */
+    public int size() {
+        return this.size + (this.hasEmptyKey ? 1 : 0);
+    }
+
+    /**
+     * Remove all the keys but keep the allocated table
+     */
+    public void clear() {
+        if (this.size > 0) {
+            Arrays.fill(this.keys, EMPTY);
+        }
+        this.size = 0;
+        this.hasEmptyKey = false;
+    }
+
+    private int findSlot(long key) {
+        int mask = this.keys.length - 1;
+        int slot = mix(key) & mask;
+        while (this.keys[slot] != EMPTY && this.keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        long[] oldKeys = this.keys;
+        this.keys = new long[oldKeys.length * 2];
+        Arrays.fill(this.keys, EMPTY);
+        for (long key : oldKeys) {
+            if (key != EMPTY) {
+                this.keys[this.findSlot(key)] = key;
+            }
+        }
+    }
+
+    private static int mix(long key) {
+        key *= 0x9E3779B97F4A7C15L;
+        return (int) (key ^ (key >>> 32));
+    }
+}
@@ -0,0 +1,68 @@
+package engine.helper;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+
+/**
+ * Acquire and release fences for memory that is shared with other processes, where volatile fields do not
+ * help. On Java 9 and later these are the supported VarHandle.acquireFence and releaseFence, Java 8 only has
+ * the same fences on sun.misc.Unsafe. Both are looked up at runtime so the sources build on Java 8 without
+ * using an internal API.
+ */
+final class MemoryFences {
+    private static final MethodHandle ACQUIRE;
+    private static final MethodHandle RELEASE;
+
+    static {
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        MethodType type = MethodType.methodType(void.class);
+        MethodHandle acquire;
+        MethodHandle release;
+        try {
+            Class<?> varHandle = Class.forName("java.lang.invoke.VarHandle");
+            acquire = lookup.findStatic(varHandle, "acquireFence", type);
+            release = lookup.findStatic(varHandle, "releaseFence", type);
+        } catch (ReflectiveOperationException e) {
+            //java 8, where loadFence and storeFence give the same ordering
+            try {
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                Field field = unsafeClass.getDeclaredField("theUnsafe");
+                field.setAccessible(true);
+                Object unsafe = field.get(null);
+                acquire = lookup.findVirtual(unsafeClass, "loadFence", type).bindTo(unsafe);
+                release = lookup.findVirtual(unsafeClass, "storeFence", type).bindTo(unsafe);
+            } catch (ReflectiveOperationException unsupported) {
+                throw new ExceptionInInitializerError(unsupported);
+            }
+        }
+        ACQUIRE = acquire;
+        RELEASE = release;
+    }
+
+    private MemoryFences() {
+    }
+
+    /**
+     * Keep the reads and writes after this call from moving before the read just before it
+     */
+    static void acquire() {
+        try {
+            ACQUIRE.invokeExact();
+        } catch (Throwable e) {
+            throw new IllegalStateException("The acquire fence failed", e);
+        }
+    }
+
+    /**
+     * Keep the reads and writes before this call from moving after the write just after it
+     */
+    static void release() {
+        try {
+            RELEASE.invokeExact();
+        } catch (Throwable e) {
+            throw new IllegalStateException("The release fence failed", e);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package engine.helper;
 
 import engine.core.MarioLevelModel;
 import engine.core.MarioResult;
+import engine.core.MarioSummary;
 import levelGenerators.MarioLevelGenerator;
 
 import java.io.IOException;
@@ -67,4 +68,18 @@ public class RunUtils {
                 result.getMaxJumpAirTime(), result.getNumBumpBrick(), result.getNumBumpQuestionBlock(),
                 result.getMarioNumHurts());
     }
+
+    /**
+     * Turns a MarioSummary object into a MarioStats object.
+     * @param summary - summary of a game played with MarioGame.runSimulation.
+     */
+    public static MarioStats resultToStats(MarioSummary summary) {
+        return new MarioStats(summary.getGameStatus(), summary.getCompletionPercentage(),
+                summary.getCurrentLives(), summary.getCurrentCoins(), (int) Math.ceil(summary.getRemainingTime() / 1000f),
+                summary.getMarioMode(), summary.getNumCollectedMushrooms(), summary.getNumCollectedFireflower(),
+                summary.getKillsTotal(), summary.getKillsByStomp(), summary.getKillsByFire(), summary.getKillsByShell(),
+                summary.getKillsByFall(), summary.getNumDestroyedBricks(), summary.getNumJumps(), summary.getMaxXJump(),
+                summary.getMaxJumpAirTime(), summary.getNumBumpBrick(), summary.getNumBumpQuestionBlock(),
+                summary.getMarioNumHurts());
+    }
 }
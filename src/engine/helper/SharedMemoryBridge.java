@@ -0,0 +1,245 @@
+package engine.helper;
+
+import engine.core.CompiledLevel;
+import engine.core.MarioGame;
+import engine.core.VectorMarioEnv;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Serves a VectorMarioEnv to other processes on the same machine through a memory-mapped file, so agents that
+ * do not run in the JVM can step the worlds without sending any text. The client writes the actions and a
+ * command, then bumps the request sequence; the bridge runs the command, writes the results and sets the
+ * response sequence to the request sequence. Both sides only spin on the two sequence numbers.
+ * <p>
+ * The sequence numbers are the only synchronization between the processes. The bridge reads the request
+ * sequence followed by an acquire fence and writes the response sequence and the magic after a release fence,
+ * so the actions are read after the request and the results are written before the response on any cpu. A
+ * client must do the same: write the request sequence with a release store after the actions and the command,
+ * and read the response sequence with an acquire load before the results, for example with C11 atomics. Plain
+ * loads and stores only give that ordering on x86, which keeps stores in order and loads in order, so the
+ * python test client refuses to run on other cpus.
+ * <p>
+ * All values are little endian. The header is HEADER_SIZE bytes of ints at these offsets:
+ * <pre>
+ *  0 magic              20 mario state size    40 response sequence (bridge)
+ *  4 version            24 ring size           44 frame count (bridge)
+ *  8 number of worlds   28 reserved
+ * 12 observation width  32 request sequence (client)
+ * 16 observation height 36 command (client)
+ * </pre>
+ * After the header each block starts at the next multiple of 8 bytes:
+ * <ul>
+ * <li>actions: one byte per world, bit i is action i of MarioActions</li>
+ * <li>rewards: one float per world</li>
+ * <li>done flags: one byte per world, 1 if the game of the world ended in the last step</li>
+ * <li>statuses: one byte per world, the ordinal of GameStatus the world ended the last step with</li>
+ * <li>mario states: VectorMarioEnv.MARIO_STATE_SIZE floats per world</li>
+ * <li>observation ring: ring size frames, each one signed byte per observation cell of every world. Frame n is
+ * in slot n % ring size, the latest frame is frame count - 1, so clients can stack recent frames in place.</li>
+ * </ul>
+ * The magic is written last, a client should wait for it before sending the first request.
+ */
+public class SharedMemoryBridge {
+    public static final int MAGIC = 0x4D42524D;
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 64;
+
+    public static final int COMMAND_STEP = 1;
+    public static final int COMMAND_RESET = 2;
+    public static final int COMMAND_CLOSE = 3;
+
+    private static final int NUM_ENVS_OFFSET = 8;
+    private static final int OBSERVATION_WIDTH_OFFSET = 12;
+    private static final int OBSERVATION_HEIGHT_OFFSET = 16;
+    private static final int MARIO_STATE_SIZE_OFFSET = 20;
+    private static final int RING_SIZE_OFFSET = 24;
+    private static final int REQUEST_OFFSET = 32;
+    private static final int COMMAND_OFFSET = 36;
+    private static final int RESPONSE_OFFSET = 40;
+    private static final int FRAME_OFFSET = 44;
+
+    private final VectorMarioEnv env;
+    private final int ringSize;
+    private final MappedByteBuffer buffer;
+    private final int actionsOffset;
+    private final int rewardsOffset;
+    private final int donesOffset;
+    private final int statusesOffset;
+    private final int marioStatesOffset;
+    private final int ringOffset;
+    private final int[] actions;
+    private int frame;
+
+    /**
+     * Create the bridge file and write the first observations, the file is overwritten if it exists
+     *
+     * @param env      the environment served by the bridge
+     * @param file     the file that is mapped by the bridge and its clients
+     * @param ringSize the number of observation frames kept
+     * @throws IOException if the file can not be created or mapped
+     */
+    public SharedMemoryBridge(VectorMarioEnv env, Path file, int ringSize) throws IOException {
+        if (ringSize <= 0) {
+            throw new IllegalArgumentException("The ring needs at least one frame");
+        }
+        this.env = env;
+        this.ringSize = ringSize;
+        int numEnvs = env.getNumEnvs();
+        this.actionsOffset = HEADER_SIZE;
+        this.rewardsOffset = align(this.actionsOffset + numEnvs);
+        this.donesOffset = align(this.rewardsOffset + 4 * numEnvs);
+        this.statusesOffset = align(this.donesOffset + numEnvs);
+        this.marioStatesOffset = align(this.statusesOffset + numEnvs);
+        this.ringOffset = align(this.marioStatesOffset + 4 * numEnvs * VectorMarioEnv.MARIO_STATE_SIZE);
+        int size = this.ringOffset + ringSize * numEnvs * env.getObservationSize();
+        this.actions = new int[numEnvs];
+
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(0);
+            raf.setLength(size);
+            this.buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+        this.buffer.order(ByteOrder.LITTLE_ENDIAN);
+        this.buffer.putInt(4, VERSION);
+        this.buffer.putInt(NUM_ENVS_OFFSET, numEnvs);
+        this.buffer.putInt(OBSERVATION_WIDTH_OFFSET, MarioGame.tileWidth);
+        this.buffer.putInt(OBSERVATION_HEIGHT_OFFSET, MarioGame.tileHeight);
+        this.buffer.putInt(MARIO_STATE_SIZE_OFFSET, VectorMarioEnv.MARIO_STATE_SIZE);
+        this.buffer.putInt(RING_SIZE_OFFSET, ringSize);
+        this.frame = 0;
+        this.writeResults();
+        this.putRelease(0, MAGIC);
+    }
+
+    /**
+     * Answer requests until a client sends the close command or the thread is interrupted
+     */
+    public void serve() {
+        int lastRequest = this.getAcquire(REQUEST_OFFSET);
+        int spins = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            int request = this.getAcquire(REQUEST_OFFSET);
+            if (request == lastRequest) {
+                //spin while requests come quickly, then give the core away
+                spins++;
+                if (spins > 100000) {
+                    LockSupport.parkNanos(100000);
+                } else if (spins > 1000) {
+                    Thread.yield();
+                }
+                continue;
+            }
+            spins = 0;
+            lastRequest = request;
+            int command = this.buffer.getInt(COMMAND_OFFSET);
+            if (command == COMMAND_STEP) {
+                for (int i = 0; i < this.actions.length; i++) {
+                    this.actions[i] = this.buffer.get(this.actionsOffset + i) & 0xFF;
+                }
+                this.env.step(this.actions);
+                this.writeResults();
+            } else if (command == COMMAND_RESET) {
+                this.env.reset();
+                this.writeResults();
+            }
+            this.putRelease(RESPONSE_OFFSET, request);
+            if (command == COMMAND_CLOSE) {
+                return;
+            }
+        }
+    }
+
+    private void writeResults() {
+        float[] rewards = this.env.getRewards();
+        boolean[] dones = this.env.getDones();
+        GameStatus[] statuses = this.env.getStatuses();
+        float[] marioStates = this.env.getMarioStates();
+        int[] observations = this.env.getObservations();
+        for (int i = 0; i < rewards.length; i++) {
+            this.buffer.putFloat(this.rewardsOffset + 4 * i, rewards[i]);
+            this.buffer.put(this.donesOffset + i, (byte) (dones[i] ? 1 : 0));
+            this.buffer.put(this.statusesOffset + i, (byte) statuses[i].ordinal());
+        }
+        for (int i = 0; i < marioStates.length; i++) {
+            this.buffer.putFloat(this.marioStatesOffset + 4 * i, marioStates[i]);
+        }
+        int slot = this.ringOffset + (this.frame % this.ringSize) * observations.length;
+        for (int i = 0; i < observations.length; i++) {
+            this.buffer.put(slot + i, (byte) observations[i]);
+        }
+        this.frame++;
+        this.buffer.putInt(FRAME_OFFSET, this.frame);
+    }
+
+    //a load that no later access to the mapped file can move before
+    private int getAcquire(int offset) {
+        int value = this.buffer.getInt(offset);
+        MemoryFences.acquire();
+        return value;
+    }
+
+    //a store that no earlier access to the mapped file can move after
+    private void putRelease(int offset, int value) {
+        MemoryFences.release();
+        this.buffer.putInt(offset, value);
+    }
+
+    private static int align(int offset) {
+        return (offset + 7) & ~7;
+    }
+
+    private static List<CompiledLevel> loadLevels(Path path) throws IOException {
+        ArrayList<CompiledLevel> levels = new ArrayList<>();
+        if (path.toString().endsWith(".corpus")) {
+            LevelCorpus corpus = LevelCorpus.open(path);
+            for (String folder : corpus.getFolders()) {
+                for (int number : corpus.getLevelNumbers(folder)) {
+                    levels.add(corpus.getLevel(folder, number));
+                }
+            }
+        } else if (Files.isDirectory(path)) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(path, "lvl-*.txt")) {
+                for (Path file : files) {
+                    levels.add(CompiledLevel.compile(new String(Files.readAllBytes(file))));
+                }
+            }
+        } else {
+            levels.add(CompiledLevel.compile(new String(Files.readAllBytes(path))));
+        }
+        return levels;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.out.println("usage: java engine.helper.SharedMemoryBridge <bridge file> <worlds> <level file, level folder or corpus> [timer] [workers] [ring size]");
+            return;
+        }
+        Path file = Paths.get(args[0]);
+        int numEnvs = Integer.parseInt(args[1]);
+        List<CompiledLevel> levels = loadLevels(Paths.get(args[2]));
+        int timer = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+        int workers = args.length > 4 ? Integer.parseInt(args[4]) : 1;
+        int ringSize = args.length > 5 ? Integer.parseInt(args[5]) : 4;
+
+        VectorMarioEnv env = new VectorMarioEnv(numEnvs, levels, timer, 0, workers, System.nanoTime());
+        try {
+            SharedMemoryBridge bridge = new SharedMemoryBridge(env, file, ringSize);
+            System.out.println("Serving " + numEnvs + " worlds on " + levels.size() + " levels through " + file);
+            bridge.serve();
+        } finally {
+            env.close();
+        }
+    }
+}
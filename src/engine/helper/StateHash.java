@@ -0,0 +1,57 @@
+package engine.helper;
+
+/**
+ * Helpers for building the 64 bit state hashes of the world. Tile keys are generated from their position
+ * and value instead of being stored in a table, so levels of any size can use them.
+ */
+public class StateHash {
+    private static final long SEED = 0x6A09E667F3BCC909L;
+
+    /**
+     * Get the zobrist key of a single tile value, xor it into a hash to add or remove the tile
+     *
+     * @param xTile the x position of the tile
+     * @param yTile the y position of the tile
+     * @param value the value of the tile
+     * @return a well mixed key that is unique for the combination of the three values
+     */
+    public static long tileKey(int xTile, int yTile, int value) {
+        return scramble(((long) xTile << 40) ^ ((long) (yTile & 0xFFFF) << 24) ^ (value & 0xFFFFFF));
+    }
+
+    /**
+     * Add a value to a hash, the result depends on the order the values are added in
+     *
+     * @param hash  the hash so far
+     * @param value the value to add
+     * @return the new hash
+     */
+    public static long mix(long hash, long value) {
+        return scramble(hash ^ scramble(value + SEED));
+    }
+
+    /**
+     * @param hash  the hash so far
+     * @param value the value to add, compared by its exact bits
+     * @return the new hash
+     */
+    public static long mix(long hash, float value) {
+        return mix(hash, Float.floatToIntBits(value));
+    }
+
+    /**
+     * @param hash  the hash so far
+     * @param value the value to add
+     * @return the new hash
+     */
+    public static long mix(long hash, boolean value) {
+        return mix(hash, value ? 1 : 0);
+    }
+
+    //splitmix64 finalizer
+    private static long scramble(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+}
@@ -14,6 +14,58 @@ public enum TileFeature {
     ANIMATED,
     SPAWNER;
 
+    private static final int[] tileMasks = new int[256];
+
+    static {
+        for (int index = 0; index < tileMasks.length; index++) {
+            for (TileFeature feature : getTileType(index)) {
+                tileMasks[index] |= feature.getMask();
+            }
+        }
+    }
+
+    /**
+     * @return the bit of this feature inside the masks returned by getTileMask
+     */
+    public int getMask() {
+        return 1 << this.ordinal();
+    }
+
+    /**
+     * Get all the features of a tile without allocating a list
+     *
+     * @param index the tile index in the level
+     * @return a bitmask where every feature of the tile has its getMask() bit set
+     */
+    public static int getTileMask(int index) {
+        if (index < 0 || index >= tileMasks.length) {
+            return 0;
+        }
+        return tileMasks[index];
+    }
+
+    /**
+     * @param index   the tile index in the level
+     * @param feature the feature to look for
+     * @return true if the tile has that feature
+     */
+    public static boolean hasFeature(int index, TileFeature feature) {
+        return (getTileMask(index) & feature.getMask()) != 0;
+    }
+
+    /**
+     * @param index the tile index in the level
+     * @param ya    the vertical speed of whatever is moving into the tile
+     * @return true if the tile blocks movement in that direction
+     */
+    public static boolean isBlocking(int index, float ya) {
+        int mask = getTileMask(index);
+        boolean blocking = (mask & BLOCK_ALL.getMask()) != 0;
+        blocking |= (ya < 0) && (mask & BLOCK_UPPER.getMask()) != 0;
+        blocking |= (ya > 0) && (mask & BLOCK_LOWER.getMask()) != 0;
+        return blocking;
+    }
+
     public static ArrayList<TileFeature> getTileType(int index) {
         ArrayList<TileFeature> features = new ArrayList<>();
         switch (index) {
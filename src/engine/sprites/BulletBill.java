@@ -36,6 +36,27 @@ public class BulletBill extends MarioSprite {
         return (MarioSprite) sprite;
     }
 
+    @Override
+    public MarioSprite cloneInto(MarioSprite sprite) {
+        if (sprite == null || sprite.getClass() != BulletBill.class) {
+            return this.clone();
+        }
+        //clone does not keep the initial code, neither does this
+        BulletBill b = (BulletBill) sprite;
+        b.x = this.x;
+        b.y = this.y;
+        b.xa = this.xa;
+        b.ya = this.ya;
+        b.initialCode = NO_CODE;
+        b.width = this.width;
+        b.height = this.height;
+        b.facing = this.facing;
+        b.alive = true;
+        b.world = null;
+        b.graphics = null;
+        return b;
+    }
+
     @Override
     public void update() {
         if (!this.alive) {
@@ -6,8 +6,12 @@ import engine.graphics.MarioImage;
 import engine.helper.Assets;
 import engine.helper.EventType;
 import engine.helper.SpriteType;
+import engine.helper.StateHash;
 
 import java.awt.*;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 public class Enemy extends MarioSprite {
     private static final float GROUND_INERTIA = 0.89f;
@@ -67,6 +71,61 @@ public class Enemy extends MarioSprite {
         return (MarioSprite) e;
     }
 
+    @Override
+    public MarioSprite cloneInto(MarioSprite sprite) {
+        if (sprite == null || sprite.getClass() != Enemy.class) {
+            return this.clone();
+        }
+        //everything the constructor and clone would set
+        Enemy e = (Enemy) sprite;
+        e.type = this.type;
+        e.x = this.x;
+        e.y = this.y;
+        e.xa = this.xa;
+        e.ya = this.ya;
+        e.initialCode = this.initialCode;
+        e.width = this.width;
+        e.height = this.height;
+        e.facing = this.facing == 0 ? 1 : this.facing;
+        e.alive = true;
+        e.world = null;
+        e.onGround = this.onGround;
+        e.winged = this.winged;
+        e.avoidCliffs = this.avoidCliffs;
+        e.noFireballDeath = this.noFireballDeath;
+        e.runTime = 0;
+        e.wingTime = 0;
+        e.graphics = null;
+        e.wingGraphics = null;
+        return e;
+    }
+
+    @Override
+    public long getStateHash(long hash) {
+        hash = super.getStateHash(hash);
+        hash = StateHash.mix(hash, this.onGround);
+        hash = StateHash.mix(hash, this.avoidCliffs);
+        return StateHash.mix(hash, this.winged);
+    }
+
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        super.writeState(out);
+        out.writeBoolean(this.onGround);
+        out.writeBoolean(this.avoidCliffs);
+        out.writeBoolean(this.winged);
+        out.writeBoolean(this.noFireballDeath);
+    }
+
+    @Override
+    public void readState(DataInput in) throws IOException {
+        super.readState(in);
+        this.onGround = in.readBoolean();
+        this.avoidCliffs = in.readBoolean();
+        this.winged = in.readBoolean();
+        this.noFireballDeath = in.readBoolean();
+    }
+
     public void collideCheck() {
         if (!this.alive) {
             return;
@@ -4,8 +4,12 @@ import engine.graphics.MarioImage;
 import engine.helper.Assets;
 import engine.helper.EventType;
 import engine.helper.SpriteType;
+import engine.helper.StateHash;
 
 import java.awt.*;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 public class FireFlower extends MarioSprite {
     private MarioImage graphics;
@@ -39,6 +43,45 @@ public class FireFlower extends MarioSprite {
         return (MarioSprite) f;
     }
 
+    @Override
+    public MarioSprite cloneInto(MarioSprite sprite) {
+        if (sprite == null || sprite.getClass() != FireFlower.class) {
+            return this.clone();
+        }
+        FireFlower f = (FireFlower) sprite;
+        f.x = this.x;
+        f.y = this.y;
+        f.xa = this.xa;
+        f.ya = this.ya;
+        f.initialCode = this.initialCode;
+        f.width = this.width;
+        f.height = this.height;
+        f.facing = this.facing;
+        f.alive = true;
+        f.world = null;
+        f.life = this.life;
+        f.graphics = null;
+        return f;
+    }
+
+    @Override
+    public long getStateHash(long hash) {
+        hash = super.getStateHash(hash);
+        return StateHash.mix(hash, this.life);
+    }
+
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        super.writeState(out);
+        out.writeInt(this.life);
+    }
+
+    @Override
+    public void readState(DataInput in) throws IOException {
+        super.readState(in);
+        this.life = in.readInt();
+    }
+
     @Override
     public void collideCheck() {
         if (!this.alive) {
@@ -5,6 +5,9 @@ import engine.helper.Assets;
 import engine.helper.SpriteType;
 
 import java.awt.*;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 public class Fireball extends MarioSprite {
 
@@ -43,6 +46,28 @@ public class Fireball extends MarioSprite {
         return (MarioSprite) f;
     }
 
+    @Override
+    public MarioSprite cloneInto(MarioSprite sprite) {
+        if (sprite == null || sprite.getClass() != Fireball.class) {
+            return this.clone();
+        }
+        Fireball f = (Fireball) sprite;
+        f.x = this.x;
+        f.y = this.y;
+        f.xa = this.xa;
+        f.ya = this.ya;
+        f.initialCode = this.initialCode;
+        f.width = this.width;
+        f.height = this.height;
+        f.facing = this.facing;
+        f.alive = true;
+        f.world = null;
+        f.onGround = this.onGround;
+        f.anim = 0;
+        f.graphics = null;
+        return f;
+    }
+
     private boolean move(float xa, float ya) {
         while (xa > 8) {
             if (!move(8, 0))
@@ -137,6 +162,18 @@ public class Fireball extends MarioSprite {
         return blocking;
     }
 
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        super.writeState(out);
+        out.writeBoolean(this.onGround);
+    }
+
+    @Override
+    public void readState(DataInput in) throws IOException {
+        super.readState(in);
+        this.onGround = in.readBoolean();
+    }
+
     @Override
     public void update() {
         if (!this.alive) {
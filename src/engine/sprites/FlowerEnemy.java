@@ -1,6 +1,11 @@
 package engine.sprites;
 
 import engine.helper.SpriteType;
+import engine.helper.StateHash;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 public class FlowerEnemy extends Enemy {
     private float yStart;
@@ -27,6 +32,9 @@ public class FlowerEnemy extends Enemy {
     @Override
     public MarioSprite clone() {
         FlowerEnemy sprite = new FlowerEnemy(false, this.x, this.y);
+        //the constructor moves the flower up out of its pipe, put it back where this one is
+        sprite.x = this.x;
+        sprite.y = this.y;
         sprite.xa = this.xa;
         sprite.ya = this.ya;
         sprite.initialCode = this.initialCode;
@@ -41,6 +49,58 @@ public class FlowerEnemy extends Enemy {
         return (MarioSprite) sprite;
     }
 
+    @Override
+    public MarioSprite cloneInto(MarioSprite sprite) {
+        if (sprite == null || sprite.getClass() != FlowerEnemy.class) {
+            return this.clone();
+        }
+        //everything the constructor and clone would set
+        FlowerEnemy f = (FlowerEnemy) sprite;
+        f.x = this.x;
+        f.y = this.y;
+        f.xa = this.xa;
+        f.ya = this.ya;
+        f.initialCode = this.initialCode;
+        f.width = this.width;
+        f.height = this.height;
+        f.facing = 1;
+        f.alive = true;
+        f.world = null;
+        f.onGround = this.onGround;
+        f.winged = this.winged;
+        f.avoidCliffs = this.avoidCliffs;
+        f.noFireballDeath = this.noFireballDeath;
+        f.yStart = this.yStart;
+        f.waitTime = this.waitTime;
+        f.tick = 0;
+        f.runTime = 0;
+        f.wingTime = 0;
+        f.graphics = null;
+        f.wingGraphics = null;
+        return f;
+    }
+
+    @Override
+    public long getStateHash(long hash) {
+        hash = super.getStateHash(hash);
+        hash = StateHash.mix(hash, this.yStart);
+        return StateHash.mix(hash, this.waitTime);
+    }
+
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        super.writeState(out);
+        out.writeFloat(this.yStart);
+        out.writeInt(this.waitTime);
+    }
+
+    @Override
+    public void readState(DataInput in) throws IOException {
+        super.readState(in);
+        this.yStart = in.readFloat();
+        this.waitTime = in.readInt();
+    }
+
     @Override
     public void update() {
         if (!this.alive) {
@@ -5,11 +5,15 @@ import engine.graphics.MarioImage;
 import engine.helper.*;
 
 import java.awt.*;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 public class Mario extends MarioSprite {
     public boolean isLarge, isFire;
     public boolean onGround, wasOnGround, isDucking, canShoot, mayJump;
     public boolean[] actions = null;
+    private boolean[] clonedActions = null;
     public int jumpTime = 0;
 
     private float xJumpSpeed, yJumpSpeed = 0;
@@ -39,7 +43,34 @@ public class Mario extends MarioSprite {
 
     @Override
     public MarioSprite clone() {
-        Mario sprite = new Mario(false, x - 8, y - 15);
+        return this.cloneInto((Mario) null);
+    }
+
+    @Override
+    public MarioSprite cloneInto(MarioSprite sprite) {
+        return this.cloneInto(sprite instanceof Mario ? (Mario) sprite : null);
+    }
+
+    /**
+     * Copy this mario into a mario that is no longer used instead of allocating a new one
+     *
+     * @param sprite a mario that was created by clone and is not used anymore, null to create a new one
+     * @return the mario holding the copied state
+     */
+    public Mario cloneInto(Mario sprite) {
+        if (sprite == null) {
+            sprite = new Mario(false, x - 8, y - 15);
+        } else {
+            //reset what the constructor would have set, with the same rounding of the position
+            sprite.x = (this.x - 8) + 8;
+            sprite.y = (this.y - 15) + 15;
+            sprite.alive = true;
+            sprite.world = null;
+            sprite.oldLarge = false;
+            sprite.oldFire = false;
+            sprite.marioFrameSpeed = 0;
+            sprite.graphics = null;
+        }
         sprite.xa = this.xa;
         sprite.ya = this.ya;
         sprite.initialCode = this.initialCode;
@@ -53,7 +84,11 @@ public class Mario extends MarioSprite {
         sprite.isDucking = isDucking;
         sprite.canShoot = canShoot;
         sprite.mayJump = mayJump;
-        sprite.actions = new boolean[this.actions.length];
+        //actions is set to the array passed to update, so only the array allocated here can be reused
+        if (sprite.clonedActions == null || sprite.clonedActions.length != this.actions.length) {
+            sprite.clonedActions = new boolean[this.actions.length];
+        }
+        sprite.actions = sprite.clonedActions;
         for (int i = 0; i < this.actions.length; i++) {
             sprite.actions[i] = this.actions[i];
         }
@@ -62,7 +97,74 @@ public class Mario extends MarioSprite {
         sprite.invulnerableTime = invulnerableTime;
         sprite.jumpTime = jumpTime;
         sprite.xJumpStart = xJumpStart;
-        return (MarioSprite) sprite;
+        return sprite;
+    }
+
+    @Override
+    public long getStateHash(long hash) {
+        hash = super.getStateHash(hash);
+        hash = StateHash.mix(hash, this.isLarge);
+        hash = StateHash.mix(hash, this.isFire);
+        hash = StateHash.mix(hash, this.onGround);
+        hash = StateHash.mix(hash, this.wasOnGround);
+        hash = StateHash.mix(hash, this.isDucking);
+        hash = StateHash.mix(hash, this.canShoot);
+        hash = StateHash.mix(hash, this.mayJump);
+        hash = StateHash.mix(hash, this.jumpTime);
+        hash = StateHash.mix(hash, this.xJumpSpeed);
+        hash = StateHash.mix(hash, this.yJumpSpeed);
+        return StateHash.mix(hash, this.invulnerableTime);
+    }
+
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        super.writeState(out);
+        out.writeBoolean(this.isLarge);
+        out.writeBoolean(this.isFire);
+        out.writeBoolean(this.onGround);
+        out.writeBoolean(this.wasOnGround);
+        out.writeBoolean(this.isDucking);
+        out.writeBoolean(this.canShoot);
+        out.writeBoolean(this.mayJump);
+        //actions is null until the first update
+        out.writeByte(this.actions == null ? -1 : this.actions.length);
+        if (this.actions != null) {
+            for (int i = 0; i < this.actions.length; i++) {
+                out.writeBoolean(this.actions[i]);
+            }
+        }
+        out.writeFloat(this.xJumpSpeed);
+        out.writeFloat(this.yJumpSpeed);
+        out.writeInt(this.invulnerableTime);
+        out.writeInt(this.jumpTime);
+        out.writeFloat(this.xJumpStart);
+    }
+
+    @Override
+    public void readState(DataInput in) throws IOException {
+        super.readState(in);
+        this.isLarge = in.readBoolean();
+        this.isFire = in.readBoolean();
+        this.onGround = in.readBoolean();
+        this.wasOnGround = in.readBoolean();
+        this.isDucking = in.readBoolean();
+        this.canShoot = in.readBoolean();
+        this.mayJump = in.readBoolean();
+        int actionCount = in.readByte();
+        if (actionCount < 0) {
+            this.actions = null;
+        } else {
+            this.clonedActions = new boolean[actionCount];
+            this.actions = this.clonedActions;
+            for (int i = 0; i < actionCount; i++) {
+                this.actions[i] = in.readBoolean();
+            }
+        }
+        this.xJumpSpeed = in.readFloat();
+        this.yJumpSpeed = in.readFloat();
+        this.invulnerableTime = in.readInt();
+        this.jumpTime = in.readInt();
+        this.xJumpStart = in.readFloat();
     }
 
     private boolean move(float xa, float ya) {
@@ -161,7 +263,7 @@ public class Mario extends MarioSprite {
         boolean blocking = world.level.isBlocking(xTile, yTile, xa, ya);
         int block = world.level.getBlock(xTile, yTile);
 
-        if (TileFeature.getTileType(block).contains(TileFeature.PICKABLE)) {
+        if (TileFeature.hasFeature(block, TileFeature.PICKABLE)) {
             this.world.addEvent(EventType.COLLECT, block);
             this.collectCoin();
             world.level.setBlock(xTile, yTile, 0);
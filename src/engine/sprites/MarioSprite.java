@@ -2,21 +2,30 @@ package engine.sprites;
 
 import engine.core.MarioWorld;
 import engine.helper.SpriteType;
+import engine.helper.StateHash;
 
 import java.awt.*;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 public abstract class MarioSprite {
     //    public static SpriteContext spriteContext;
     public SpriteType type = SpriteType.UNDEF;
 
-    public String initialCode;
+    /**
+     * code of the level template that spawned this sprite, NO_CODE if it was not spawned from a template
+     */
+    public static final long NO_CODE = -1;
+
+    public long initialCode;
     public float x, y, xa, ya;
     public int width, height, facing;
     public boolean alive;
     public MarioWorld world;
 
     public MarioSprite(float x, float y, SpriteType type) {
-        this.initialCode = "";
+        this.initialCode = NO_CODE;
         this.x = x;
         this.y = y;
         this.xa = 0;
@@ -33,6 +42,69 @@ public abstract class MarioSprite {
         return null;
     }
 
+    /**
+     * Copy this sprite into a sprite that is no longer used instead of allocating a new one, the copy is the
+     * same as the one clone() returns
+     *
+     * @param sprite a sprite of the same class that is not used anymore, null to create a new one
+     * @return the sprite holding the copied state, a new one if the given sprite could not be reused
+     */
+    public MarioSprite cloneInto(MarioSprite sprite) {
+        return this.clone();
+    }
+
+    /**
+     * Add the state of this sprite to a hash of the world
+     *
+     * @param hash the hash so far
+     * @return the hash with the type, position, speed and direction of this sprite added
+     */
+    public long getStateHash(long hash) {
+        hash = StateHash.mix(hash, this.type.getValue());
+        hash = StateHash.mix(hash, this.x);
+        hash = StateHash.mix(hash, this.y);
+        hash = StateHash.mix(hash, this.xa);
+        hash = StateHash.mix(hash, this.ya);
+        //alive is left out, a clone is always made alive again
+        return StateHash.mix(hash, this.facing);
+    }
+
+    /**
+     * Write the state of this sprite that clone() keeps, readState brings it back on a new sprite of the same type
+     *
+     * @param out where the state is written to
+     * @throws IOException if writing fails
+     */
+    public void writeState(DataOutput out) throws IOException {
+        out.writeLong(this.initialCode);
+        out.writeFloat(this.x);
+        out.writeFloat(this.y);
+        out.writeFloat(this.xa);
+        out.writeFloat(this.ya);
+        out.writeShort(this.width);
+        out.writeShort(this.height);
+        out.writeByte(this.facing);
+    }
+
+    /**
+     * Read the state written by writeState, the sprite is then the same as the clone of the written one
+     *
+     * @param in where the state is read from
+     * @throws IOException if reading fails
+     */
+    public void readState(DataInput in) throws IOException {
+        this.initialCode = in.readLong();
+        this.x = in.readFloat();
+        this.y = in.readFloat();
+        this.xa = in.readFloat();
+        this.ya = in.readFloat();
+        this.width = in.readShort();
+        this.height = in.readShort();
+        this.facing = in.readByte();
+        this.alive = true;
+        this.world = null;
+    }
+
     public void added() {
 
     }
@@ -4,8 +4,12 @@ import engine.graphics.MarioImage;
 import engine.helper.Assets;
 import engine.helper.EventType;
 import engine.helper.SpriteType;
+import engine.helper.StateHash;
 
 import java.awt.*;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 public class Mushroom extends MarioSprite {
     private boolean onGround = false;
@@ -45,6 +49,49 @@ public class Mushroom extends MarioSprite {
         return (MarioSprite) m;
     }
 
+    @Override
+    public MarioSprite cloneInto(MarioSprite sprite) {
+        if (sprite == null || sprite.getClass() != Mushroom.class) {
+            return this.clone();
+        }
+        Mushroom m = (Mushroom) sprite;
+        m.x = this.x;
+        m.y = this.y;
+        m.xa = this.xa;
+        m.ya = this.ya;
+        m.initialCode = this.initialCode;
+        m.width = this.width;
+        m.height = this.height;
+        m.facing = this.facing;
+        m.alive = true;
+        m.world = null;
+        m.life = this.life;
+        m.onGround = this.onGround;
+        m.graphics = null;
+        return m;
+    }
+
+    @Override
+    public long getStateHash(long hash) {
+        hash = super.getStateHash(hash);
+        hash = StateHash.mix(hash, this.onGround);
+        return StateHash.mix(hash, this.life);
+    }
+
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        super.writeState(out);
+        out.writeBoolean(this.onGround);
+        out.writeInt(this.life);
+    }
+
+    @Override
+    public void readState(DataInput in) throws IOException {
+        super.readState(in);
+        this.onGround = in.readBoolean();
+        this.life = in.readInt();
+    }
+
     public void collideCheck() {
         if (!this.alive) {
             return;
@@ -7,6 +7,9 @@ import engine.helper.EventType;
 import engine.helper.SpriteType;
 
 import java.awt.*;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 public class Shell extends MarioSprite {
     private static final float GROUND_INERTIA = 0.89f;
@@ -17,7 +20,7 @@ public class Shell extends MarioSprite {
 
     private MarioImage graphics;
 
-    public Shell(boolean visuals, float x, float y, int shellType, String spriteCode) {
+    public Shell(boolean visuals, float x, float y, int shellType, long spriteCode) {
         super(x, y, SpriteType.SHELL);
 
         this.width = 4;
@@ -47,6 +50,42 @@ public class Shell extends MarioSprite {
         return (Shell) sprite;
     }
 
+    @Override
+    public MarioSprite cloneInto(MarioSprite sprite) {
+        if (sprite == null || sprite.getClass() != Shell.class) {
+            return this.clone();
+        }
+        Shell s = (Shell) sprite;
+        s.x = this.x;
+        s.y = this.y;
+        s.xa = this.xa;
+        s.ya = this.ya;
+        s.initialCode = this.initialCode;
+        s.width = this.width;
+        s.height = this.height;
+        s.facing = this.facing;
+        s.alive = true;
+        s.world = null;
+        s.shellType = this.shellType;
+        s.onGround = this.onGround;
+        s.graphics = null;
+        return s;
+    }
+
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        super.writeState(out);
+        out.writeInt(this.shellType);
+        out.writeBoolean(this.onGround);
+    }
+
+    @Override
+    public void readState(DataInput in) throws IOException {
+        super.readState(in);
+        this.shellType = in.readInt();
+        this.onGround = in.readBoolean();
+    }
+
     @Override
     public void update() {
         if (!this.alive) return;